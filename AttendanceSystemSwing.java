@@ -1,11 +1,18 @@
 import java.awt.*;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.*;
 import java.time.format.DateTimeParseException;
+import java.time.temporal.IsoFields;
 import java.util.*;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableModel;
 
 public class AttendanceSystemSwing extends JFrame {
@@ -27,15 +34,204 @@ public class AttendanceSystemSwing extends JFrame {
             new Subject("HNDIT 1062", "Communication Skills", "Ms. Renuka", "lect1062")
     );
 
-    static final Map<DayOfWeek, String> TIMETABLE = Map.of(
-            DayOfWeek.MONDAY, "HNDIT 1022",
-            DayOfWeek.TUESDAY, "HNDIT 1012",
-            DayOfWeek.WEDNESDAY, "HNDIT 1032",
-            DayOfWeek.THURSDAY, "HNDIT 1042",
-            DayOfWeek.FRIDAY, "HNDIT 1062"
-    );
+    // Alternating weeks are counted from the Monday of the term's first week (week 1 is ODD).
+    enum WeekPattern { EVERY, ODD, EVEN }
+
+    static final class TimetableSlot {
+        final DayOfWeek day;
+        final LocalTime start, end; // end is exclusive
+        final Subject subject;
+        final WeekPattern weeks;
+        TimetableSlot(DayOfWeek day, LocalTime start, LocalTime end, Subject subject, WeekPattern weeks) {
+            this.day = day; this.start = start; this.end = end; this.subject = subject; this.weeks = weeks;
+        }
+        boolean overlaps(TimetableSlot o) {
+            if (day != o.day) return false;
+            if (weeks != WeekPattern.EVERY && o.weeks != WeekPattern.EVERY && weeks != o.weeks) return false;
+            return start.isBefore(o.end) && o.start.isBefore(end);
+        }
+        @Override public String toString() {
+            return day + " " + start + "-" + end + " " + subject.code + (weeks == WeekPattern.EVERY ? "" : " (" + weeks + " weeks)");
+        }
+    }
+
+    /**
+     * Weekly timetable compiled into per-parity, per-day lookup tables. Slots are sorted by start time and
+     * never overlap within one table, so {@link #slotAt(LocalDateTime)} is a binary search over int arrays
+     * and allocates nothing.
+     */
+    static final class Timetable {
+        private static final int DAYS = 7;
+
+        final LocalDate termStart, termEnd; // null = open-ended
+        final List<TimetableSlot> slots;
+
+        private final Map<String, Subject> byCode = new HashMap<>();
+        private final Map<String, Subject> byLecturer = new HashMap<>();
+        private final long firstMonday;
+        // [parity 0 = odd week, 1 = even week][day ordinal][i]
+        private final int[][][] startSec = new int[2][DAYS][];
+        private final int[][][] endSec = new int[2][DAYS][];
+        private final TimetableSlot[][][] table = new TimetableSlot[2][DAYS][];
+
+        private Timetable(List<Subject> subjects, LocalDate termStart, LocalDate termEnd, List<TimetableSlot> slots) {
+            this.termStart = termStart; this.termEnd = termEnd;
+            for (Subject s : subjects) { byCode.put(s.code, s); byLecturer.put(s.lecturerUsername, s); }
+
+            List<TimetableSlot> sorted = new ArrayList<>(slots);
+            sorted.sort(Comparator.comparing((TimetableSlot t) -> t.day).thenComparing(t -> t.start));
+            this.slots = List.copyOf(sorted);
+            this.firstMonday = termStart == null ? 0 : termStart.with(DayOfWeek.MONDAY).toEpochDay();
+
+            for (int parity = 0; parity < 2; parity++) {
+                for (int day = 0; day < DAYS; day++) {
+                    List<TimetableSlot> active = new ArrayList<>();
+                    for (TimetableSlot t : this.slots) {
+                        if (t.day.ordinal() != day) continue;
+                        if (t.weeks == WeekPattern.EVERY || t.weeks.ordinal() - 1 == parity) active.add(t);
+                    }
+                    int n = active.size();
+                    startSec[parity][day] = new int[n];
+                    endSec[parity][day] = new int[n];
+                    table[parity][day] = active.toArray(new TimetableSlot[0]);
+                    for (int i = 0; i < n; i++) {
+                        startSec[parity][day][i] = active.get(i).start.toSecondOfDay();
+                        endSec[parity][day][i] = active.get(i).end.toSecondOfDay();
+                    }
+                }
+            }
+        }
+
+        static Builder builder(List<Subject> subjects) { return new Builder(subjects); }
+
+        Subject subjectByCode(String code) { return byCode.get(code); }
+
+        Subject subjectForLecturer(String lecturerUsername) { return byLecturer.get(lecturerUsername); }
+
+        boolean inTerm(LocalDate d) {
+            return (termStart == null || !d.isBefore(termStart)) && (termEnd == null || !d.isAfter(termEnd));
+        }
+
+        /** 1-based teaching week of the term, or 0 if the timetable has no term start. */
+        int weekOfTerm(LocalDate d) {
+            if (termStart == null) return 0;
+            return (int) Math.floorDiv(d.toEpochDay() - firstMonday, 7) + 1;
+        }
+
+        private int parity(long epochDay) {
+            return Math.floorMod(Math.floorDiv(epochDay - firstMonday, 7), 2);
+        }
+
+        /** Slot running at the given instant, or null. Allocation-free. */
+        TimetableSlot slotAt(LocalDateTime t) {
+            LocalDate d = t.toLocalDate();
+            long epochDay = d.toEpochDay();
+            if (termStart != null && epochDay < termStart.toEpochDay()) return null;
+            if (termEnd != null && epochDay > termEnd.toEpochDay()) return null;
+
+            int parity = parity(epochDay);
+            int day = d.getDayOfWeek().ordinal();
+            int[] starts = startSec[parity][day];
+            int sec = t.toLocalTime().toSecondOfDay();
+
+            // last slot starting at or before sec
+            int lo = 0, hi = starts.length - 1, idx = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] <= sec) { idx = mid; lo = mid + 1; } else hi = mid - 1;
+            }
+            if (idx < 0 || sec >= endSec[parity][day][idx]) return null;
+            return table[parity][day][idx];
+        }
+
+        List<TimetableSlot> slotsOn(LocalDate d) {
+            if (!inTerm(d)) return List.of();
+            return Arrays.asList(table[parity(d.toEpochDay())][d.getDayOfWeek().ordinal()]);
+        }
+
+        /** True if the subject has a slot on that date (term and week pattern respected). */
+        boolean hasSession(String subjectCode, LocalDate d) {
+            for (TimetableSlot t : slotsOn(d)) if (t.subject.code.equals(subjectCode)) return true;
+            return false;
+        }
+
+        String summaryLine() {
+            StringBuilder sb = new StringBuilder();
+            for (TimetableSlot t : slots) {
+                if (sb.length() > 0) sb.append(" | ");
+                String day = t.day.toString();
+                sb.append(day.charAt(0)).append(day.substring(1, 3).toLowerCase())
+                  .append(' ').append(t.subject.code.substring(t.subject.code.length() - 4))
+                  .append(' ').append(t.start).append('-').append(t.end);
+                if (t.weeks != WeekPattern.EVERY) sb.append(' ').append(t.weeks.toString().toLowerCase());
+            }
+            return sb.toString();
+        }
+
+        static final class Builder {
+            private final List<Subject> subjects;
+            private final List<TimetableSlot> slots = new ArrayList<>();
+            private LocalDate termStart, termEnd;
+
+            private Builder(List<Subject> subjects) { this.subjects = subjects; }
 
-    static final String TIME_RANGE = "08:00 to 15:00";
+            Builder term(LocalDate start, LocalDate end) {
+                if (start != null && end != null && end.isBefore(start))
+                    throw new IllegalArgumentException("Term end " + end + " is before start " + start);
+                termStart = start; termEnd = end;
+                return this;
+            }
+
+            Builder slot(DayOfWeek day, String start, String end, String subjectCode) {
+                return slot(day, start, end, subjectCode, WeekPattern.EVERY);
+            }
+
+            Builder slot(DayOfWeek day, String start, String end, String subjectCode, WeekPattern weeks) {
+                Subject sub = null;
+                for (Subject s : subjects) if (s.code.equals(subjectCode)) sub = s;
+                if (sub == null) throw new IllegalArgumentException("Unknown subject: " + subjectCode);
+                LocalTime s = LocalTime.parse(start), e = LocalTime.parse(end);
+                if (!s.isBefore(e)) throw new IllegalArgumentException("Slot must end after it starts: " + start + "-" + end);
+                slots.add(new TimetableSlot(day, s, e, sub, weeks));
+                return this;
+            }
+
+            Timetable build() {
+                for (int i = 0; i < slots.size(); i++) {
+                    TimetableSlot a = slots.get(i);
+                    if (a.weeks != WeekPattern.EVERY && termStart == null)
+                        throw new IllegalStateException("Alternating-week slot needs a term start: " + a);
+                    for (int j = i + 1; j < slots.size(); j++) {
+                        if (a.overlaps(slots.get(j)))
+                            throw new IllegalArgumentException("Overlapping slots: " + a + " / " + slots.get(j));
+                    }
+                }
+                return new Timetable(subjects, termStart, termEnd, slots);
+            }
+        }
+    }
+
+    static final Timetable TIMETABLE = Timetable.builder(SUBJECTS)
+            .slot(DayOfWeek.MONDAY, "08:00", "15:00", "HNDIT 1022")
+            .slot(DayOfWeek.TUESDAY, "08:00", "15:00", "HNDIT 1012")
+            .slot(DayOfWeek.WEDNESDAY, "08:00", "15:00", "HNDIT 1032")
+            .slot(DayOfWeek.THURSDAY, "08:00", "15:00", "HNDIT 1042")
+            .slot(DayOfWeek.FRIDAY, "08:00", "15:00", "HNDIT 1062")
+            .build();
+
+    // -------- Eligibility (shared by reports and at-risk alerts) --------
+    static final int ELIGIBILITY_PERCENT = 80;
+    static final int MEDICAL_BONUS_PERCENT = 5; // once per subject with any medical, capped at 100%
+
+    /** Fewest present sessions out of {@code total} that still makes a student eligible. */
+    static int requiredPresent(int total, boolean hasMedical) {
+        int pct = ELIGIBILITY_PERCENT - (hasMedical ? MEDICAL_BONUS_PERCENT : 0);
+        return (pct * total + 99) / 100;
+    }
+
+    static boolean eligible(int present, int total, boolean hasMedical) {
+        return total > 0 && present >= requiredPresent(total, hasMedical);
+    }
 
     // -------- Users --------
     enum Role { ADMIN, LECTURER }
@@ -85,7 +281,28 @@ public class AttendanceSystemSwing extends JFrame {
         }
     }
 
+    /**
+     * Mutation callbacks fired by {@link DataStore}. Removing a student also drops their marks and medicals;
+     * that cascade is implied by {@link #studentRemoved} and not reported separately.
+     */
+    interface StoreListener {
+        default void studentAdded(Student s) {}
+        default void studentRemoved(String regNo) {}
+        default void holidayAdded(LocalDate d) {}
+        default void holidayRemoved(LocalDate d) {}
+        default void medicalAdded(Medical m) {}
+        default void medicalRemoved(Medical m) {}
+        default void notificationAdded(Notification n) {}
+        default void notificationsRead(String lecturerUsername) {}
+        default void sessionOpened(String subjectCode, LocalDate d) {}
+        /** old is null if the student had no mark for that session yet. */
+        default void studentMarked(String subjectCode, LocalDate d, String regNo, Character old, char status) {}
+        default void lecturerMarked(String subjectCode, LocalDate d, String lecturerUsername, Character old, char status) {}
+    }
+
     static final class DataStore implements Serializable {
+        private static final long serialVersionUID = 3558416881432719866L;
+
         Map<String, Student> studentsByReg = new LinkedHashMap<>();
         Set<LocalDate> holidays = new HashSet<>();
         List<Medical> medicals = new ArrayList<>();
@@ -95,37 +312,1732 @@ public class AttendanceSystemSwing extends JFrame {
         Map<String, Map<LocalDate, Map<String, Character>>> studentAttendance = new HashMap<>();
         // subject -> date -> lecturerUsername -> P/A
         Map<String, Map<LocalDate, Map<String, Character>>> lecturerAttendance = new HashMap<>();
+
+        // sequence number of the last change published to the change log (0 = none)
+        long changeSeq;
+
+        private transient List<StoreListener> listeners;
+
+        void addListener(StoreListener l) { listeners().add(l); }
+
+        void removeListener(StoreListener l) { listeners().remove(l); }
+
+        private List<StoreListener> listeners() {
+            if (listeners == null) listeners = new ArrayList<>();
+            return listeners;
+        }
+
+        // listeners may mutate the store (e.g. add notifications) from inside a callback
+        private StoreListener[] snapshot() { return listeners().toArray(new StoreListener[0]); }
+
+        boolean addStudent(Student s) {
+            if (studentsByReg.containsKey(s.regNo)) return false;
+            studentsByReg.put(s.regNo, s);
+            for (StoreListener l : snapshot()) l.studentAdded(s);
+            return true;
+        }
+
+        boolean removeStudent(String regNo) {
+            if (studentsByReg.remove(regNo) == null) return false;
+            for (var subj : studentAttendance.values()) {
+                for (var dateMap : subj.values()) dateMap.remove(regNo);
+            }
+            medicals.removeIf(m -> m.regNo.equals(regNo));
+            for (StoreListener l : snapshot()) l.studentRemoved(regNo);
+            return true;
+        }
+
+        boolean addHoliday(LocalDate d) {
+            if (!holidays.add(d)) return false;
+            for (StoreListener l : snapshot()) l.holidayAdded(d);
+            return true;
+        }
+
+        boolean removeHoliday(LocalDate d) {
+            if (!holidays.remove(d)) return false;
+            for (StoreListener l : snapshot()) l.holidayRemoved(d);
+            return true;
+        }
+
+        void addMedical(Medical m) {
+            medicals.add(m);
+            for (StoreListener l : snapshot()) l.medicalAdded(m);
+        }
+
+        int removeMedicals(Predicate<Medical> filter) {
+            List<Medical> removed = new ArrayList<>();
+            for (Iterator<Medical> it = medicals.iterator(); it.hasNext(); ) {
+                Medical m = it.next();
+                if (filter.test(m)) { it.remove(); removed.add(m); }
+            }
+            for (Medical m : removed) for (StoreListener l : snapshot()) l.medicalRemoved(m);
+            return removed.size();
+        }
+
+        void addNotification(Notification n) {
+            notifications.add(n);
+            for (StoreListener l : snapshot()) l.notificationAdded(n);
+        }
+
+        void markNotificationsRead(String lecturerUsername) {
+            for (Notification n : notifications) if (n.lecturerUsername.equals(lecturerUsername)) n.read = true;
+            for (StoreListener l : snapshot()) l.notificationsRead(lecturerUsername);
+        }
+
+        /** Creates the (possibly empty) session for subject/date. Returns false if it already existed. */
+        boolean openSession(String subjectCode, LocalDate d) {
+            Map<LocalDate, Map<String, Character>> dateMap = studentAttendance.computeIfAbsent(subjectCode, k -> new HashMap<>());
+            if (dateMap.containsKey(d)) return false;
+            dateMap.put(d, new HashMap<>());
+            for (StoreListener l : snapshot()) l.sessionOpened(subjectCode, d);
+            return true;
+        }
+
+        void markStudent(String subjectCode, LocalDate d, String regNo, char status) {
+            openSession(subjectCode, d);
+            Character old = studentAttendance.get(subjectCode).get(d).put(regNo, status);
+            if (old != null && old == status) return;
+            for (StoreListener l : snapshot()) l.studentMarked(subjectCode, d, regNo, old, status);
+        }
+
+        /** Bulk form of {@link #markStudent} for one session; listeners only hear about marks that changed. */
+        void markSession(String subjectCode, LocalDate d, Student[] students, boolean[] present) {
+            openSession(subjectCode, d);
+            Map<String, Character> session = studentAttendance.get(subjectCode).get(d);
+            StoreListener[] ls = snapshot();
+            for (int i = 0; i < students.length; i++) {
+                char status = present[i] ? 'P' : 'A';
+                Character old = session.put(students[i].regNo, status);
+                if (old != null && old == status) continue;
+                for (StoreListener l : ls) l.studentMarked(subjectCode, d, students[i].regNo, old, status);
+            }
+        }
+
+        void markLecturer(String subjectCode, LocalDate d, String lecturerUsername, char status) {
+            Character old = lecturerAttendance.computeIfAbsent(subjectCode, k -> new HashMap<>())
+                    .computeIfAbsent(d, k -> new HashMap<>())
+                    .put(lecturerUsername, status);
+            if (old != null && old == status) return;
+            for (StoreListener l : snapshot()) l.lecturerMarked(subjectCode, d, lecturerUsername, old, status);
+        }
+    }
+
+    /**
+     * Incremental 80% eligibility tracker. Per subject it keeps each student's present count in buckets keyed
+     * by the count, so a save only re-checks the students it touched plus those sitting between the old and
+     * new cut-off when the session total moves. Crossings in either direction become lecturer notifications,
+     * deduplicated against what the lecturer was last told and rate-limited per student.
+     */
+    static final class AtRiskDetector implements StoreListener {
+        static final Duration COOLDOWN = Duration.ofMinutes(30);
+        static final int MAX_ALERTS_PER_FLUSH = 10; // per lecturer; anything beyond is folded into one summary
+
+        private static final class Tally {
+            int total;
+            int totalBefore = -1; // total at the start of the current batch, -1 if unchanged
+            final Map<String, Integer> present = new HashMap<>();  // every registered student, 0 if never present
+            final Map<String, Integer> medicals = new HashMap<>(); // regNo -> medicals covering this subject
+            // [0] without medical, [1] with medical
+            final List<TreeMap<Integer, Set<String>>> buckets = List.of(new TreeMap<>(), new TreeMap<>());
+            final Map<String, Boolean> eligible = new HashMap<>(); // absent while total == 0
+            final Set<String> dirty = new HashSet<>();
+
+            int bucketOf(String regNo) { return medicals.getOrDefault(regNo, 0) > 0 ? 1 : 0; }
+
+            void bucketAdd(int b, int count, String regNo) { buckets.get(b).computeIfAbsent(count, k -> new HashSet<>()).add(regNo); }
+
+            void bucketRemove(int b, int count, String regNo) {
+                Set<String> set = buckets.get(b).get(count);
+                if (set != null && set.remove(regNo) && set.isEmpty()) buckets.get(b).remove(count);
+            }
+
+            void changeTotal(int delta) {
+                if (totalBefore < 0) totalBefore = total;
+                total += delta;
+            }
+
+            void changePresent(String regNo, int delta) {
+                Integer old = present.get(regNo);
+                if (old == null) return; // not a registered student
+                int b = bucketOf(regNo);
+                bucketRemove(b, old, regNo);
+                bucketAdd(b, old + delta, regNo);
+                present.put(regNo, old + delta);
+                dirty.add(regNo);
+            }
+
+            void changeMedical(String regNo, int delta) {
+                Integer count = present.get(regNo);
+                if (count == null) return;
+                int before = bucketOf(regNo);
+                medicals.merge(regNo, delta, Integer::sum);
+                if (medicals.get(regNo) <= 0) medicals.remove(regNo);
+                int after = bucketOf(regNo);
+                if (before != after) { bucketRemove(before, count, regNo); bucketAdd(after, count, regNo); }
+                dirty.add(regNo);
+            }
+
+            static int required(int total, int bucket) { return requiredPresent(total, bucket == 1); }
+
+            boolean isEligible(String regNo) { return eligible(present.get(regNo), total, bucketOf(regNo) == 1); }
+        }
+
+        private static final class Crossing {
+            final String subjectCode, regNo;
+            final boolean eligible;
+            Crossing(String subjectCode, String regNo, boolean eligible) {
+                this.subjectCode = subjectCode; this.regNo = regNo; this.eligible = eligible;
+            }
+        }
+
+        private final DataStore store;
+        private final Map<String, Tally> tallies = new HashMap<>();
+        // "subject|regNo" -> what the lecturer was last told / when
+        private final Map<String, Boolean> lastTold = new HashMap<>();
+        private final Map<String, LocalDateTime> lastToldAt = new HashMap<>();
+        // crossings held back by the cooldown, re-checked on every flush
+        private final Set<String> deferred = new HashSet<>();
+
+        AtRiskDetector(DataStore store) {
+            this.store = store;
+            rebuild();
+        }
+
+        /** Full recount from the store; current eligibility becomes the baseline and nothing is notified. */
+        void rebuild() {
+            tallies.clear();
+            for (Subject sub : SUBJECTS) {
+                Tally t = new Tally();
+                tallies.put(sub.code, t);
+                for (String reg : store.studentsByReg.keySet()) t.present.put(reg, 0);
+                for (var e : store.studentAttendance.getOrDefault(sub.code, Map.of()).entrySet()) {
+                    if (store.holidays.contains(e.getKey())) continue;
+                    t.total++;
+                    for (var mark : e.getValue().entrySet()) {
+                        if (mark.getValue() == 'P') t.present.computeIfPresent(mark.getKey(), (k, v) -> v + 1);
+                    }
+                }
+                for (Medical m : store.medicals) {
+                    if (t.present.containsKey(m.regNo) && covers(m, sub.code)) t.medicals.merge(m.regNo, 1, Integer::sum);
+                }
+                for (var e : t.present.entrySet()) {
+                    t.bucketAdd(t.bucketOf(e.getKey()), e.getValue(), e.getKey());
+                    if (t.total > 0) t.eligible.put(e.getKey(), t.isEligible(e.getKey()));
+                }
+            }
+        }
+
+        private static boolean covers(Medical m, String subjectCode) {
+            return "ALL".equals(m.subjectCodeOrAll) || subjectCode.equals(m.subjectCodeOrAll);
+        }
+
+        // ---- store events ----
+        @Override public void studentAdded(Student s) {
+            for (Tally t : tallies.values()) {
+                t.present.put(s.regNo, 0);
+                t.bucketAdd(0, 0, s.regNo);
+                if (t.total > 0) t.eligible.put(s.regNo, false);
+            }
+        }
+
+        @Override public void studentRemoved(String regNo) {
+            for (Tally t : tallies.values()) {
+                Integer count = t.present.remove(regNo);
+                if (count == null) continue;
+                t.bucketRemove(t.bucketOf(regNo), count, regNo);
+                t.medicals.remove(regNo);
+                t.eligible.remove(regNo);
+                t.dirty.remove(regNo);
+            }
+            for (Iterator<String> it = lastTold.keySet().iterator(); it.hasNext(); ) {
+                String key = it.next();
+                if (key.endsWith("|" + regNo)) { it.remove(); lastToldAt.remove(key); deferred.remove(key); }
+            }
+        }
+
+        @Override public void holidayAdded(LocalDate d) { applySessionsOn(d, -1); }
+
+        @Override public void holidayRemoved(LocalDate d) { applySessionsOn(d, +1); }
+
+        private void applySessionsOn(LocalDate d, int sign) {
+            for (var e : store.studentAttendance.entrySet()) {
+                Tally t = tallies.get(e.getKey());
+                Map<String, Character> session = e.getValue().get(d);
+                if (t == null || session == null) continue;
+                t.changeTotal(sign);
+                for (var mark : session.entrySet()) if (mark.getValue() == 'P') t.changePresent(mark.getKey(), sign);
+            }
+        }
+
+        @Override public void medicalAdded(Medical m) { applyMedical(m, +1); }
+
+        @Override public void medicalRemoved(Medical m) { applyMedical(m, -1); }
+
+        private void applyMedical(Medical m, int delta) {
+            for (var e : tallies.entrySet()) if (covers(m, e.getKey())) e.getValue().changeMedical(m.regNo, delta);
+        }
+
+        @Override public void sessionOpened(String subjectCode, LocalDate d) {
+            Tally t = tallies.get(subjectCode);
+            if (t != null && !store.holidays.contains(d)) t.changeTotal(+1);
+        }
+
+        @Override public void studentMarked(String subjectCode, LocalDate d, String regNo, Character old, char status) {
+            Tally t = tallies.get(subjectCode);
+            if (t == null || store.holidays.contains(d)) return;
+            int delta = (status == 'P' ? 1 : 0) - (old != null && old == 'P' ? 1 : 0);
+            if (delta != 0) t.changePresent(regNo, delta);
+        }
+
+        // ---- evaluation ----
+        /** Re-checks everything touched since the last flush and notifies lecturers of threshold crossings. */
+        void flush() {
+            List<Crossing> crossings = new ArrayList<>();
+            for (var e : tallies.entrySet()) collect(e.getKey(), e.getValue(), crossings);
+            publish(crossings, LocalDateTime.now());
+        }
+
+        private void collect(String subjectCode, Tally t, List<Crossing> out) {
+            if (t.totalBefore >= 0 && t.totalBefore != t.total) {
+                if (t.totalBefore == 0 || t.total == 0) {
+                    // no previous baseline (or none left): reset silently
+                    t.eligible.clear();
+                    if (t.total > 0) for (String reg : t.present.keySet()) t.eligible.put(reg, t.isEligible(reg));
+                    t.dirty.clear();
+                    t.totalBefore = -1;
+                    return;
+                }
+                // only students whose count lies between the old and new cut-off can flip
+                for (int b = 0; b < 2; b++) {
+                    int lo = Math.min(Tally.required(t.totalBefore, b), Tally.required(t.total, b));
+                    int hi = Math.max(Tally.required(t.totalBefore, b), Tally.required(t.total, b));
+                    for (Set<String> regs : t.buckets.get(b).subMap(lo, true, hi, false).values()) t.dirty.addAll(regs);
+                }
+            }
+            t.totalBefore = -1;
+
+            for (String reg : t.dirty) {
+                if (!t.present.containsKey(reg)) continue;
+                if (t.total == 0) { t.eligible.remove(reg); continue; }
+                boolean now = t.isEligible(reg);
+                Boolean was = t.eligible.put(reg, now);
+                if (was != null && was != now) out.add(new Crossing(subjectCode, reg, now));
+            }
+            t.dirty.clear();
+        }
+
+        private void publish(List<Crossing> crossings, LocalDateTime now) {
+            // crossings held back earlier: send once the cooldown has passed, if still true
+            for (Iterator<String> it = deferred.iterator(); it.hasNext(); ) {
+                String key = it.next();
+                int bar = key.indexOf('|');
+                String subjectCode = key.substring(0, bar), reg = key.substring(bar + 1);
+                Tally t = tallies.get(subjectCode);
+                Boolean state = t == null ? null : t.eligible.get(reg);
+                if (state == null || state.equals(lastTold.get(key))) { it.remove(); continue; }
+                if (lastToldAt.get(key).plus(COOLDOWN).isAfter(now)) continue;
+                it.remove();
+                crossings.add(new Crossing(subjectCode, reg, state));
+            }
+
+            Map<String, List<Crossing>> bySubject = new LinkedHashMap<>();
+            for (Crossing c : crossings) {
+                String key = c.subjectCode + "|" + c.regNo;
+                if (Boolean.valueOf(c.eligible).equals(lastTold.get(key))) continue; // lecturer already knows
+                LocalDateTime at = lastToldAt.get(key);
+                if (at != null && at.plus(COOLDOWN).isAfter(now)) { deferred.add(key); continue; }
+                bySubject.computeIfAbsent(c.subjectCode, k -> new ArrayList<>()).add(c);
+                lastTold.put(key, c.eligible);
+                lastToldAt.put(key, now);
+            }
+
+            for (var e : bySubject.entrySet()) {
+                Subject sub = subjectByCode(e.getKey());
+                List<Crossing> list = e.getValue();
+                if (list.size() <= MAX_ALERTS_PER_FLUSH) {
+                    for (Crossing c : list) store.addNotification(new Notification(sub.lecturerUsername, crossingMessage(c)));
+                } else {
+                    store.addNotification(new Notification(sub.lecturerUsername, summaryMessage(sub, list)));
+                }
+            }
+        }
+
+        private String crossingMessage(Crossing c) {
+            Student st = store.studentsByReg.get(c.regNo);
+            Tally t = tallies.get(c.subjectCode);
+            double pct = t.present.get(c.regNo) * 100.0 / t.total;
+            if (t.bucketOf(c.regNo) == 1) pct = Math.min(100.0, pct + MEDICAL_BONUS_PERCENT);
+            return "Attendance alert: " + c.regNo + " - " + (st == null ? "" : st.name) +
+                    (c.eligible ? " is back at or above " : " has dropped below ") + ELIGIBILITY_PERCENT + "%" +
+                    " in " + c.subjectCode + String.format(" (now %.2f%%).", pct);
+        }
+
+        private String summaryMessage(Subject sub, List<Crossing> list) {
+            List<String> below = new ArrayList<>(), above = new ArrayList<>();
+            for (Crossing c : list) (c.eligible ? above : below).add(c.regNo);
+            return "Attendance alert for " + sub.code + ": " +
+                    below.size() + " student(s) dropped below " + ELIGIBILITY_PERCENT + "% " + below + ", " +
+                    above.size() + " back at or above " + above + ". See Summary tab.";
+        }
+    }
+
+    // -------- Queries --------
+    enum MarkKind { STUDENT, LECTURER }
+
+    /** One P/A mark as seen by the query indexes. Identity is kind/subject/date/who; status is updated in place. */
+    static final class MarkRow {
+        final MarkKind kind;
+        final String subjectCode;
+        final LocalDate date;
+        final String who; // regNo or lecturer username
+        char status;
+        MarkRow(MarkKind kind, String subjectCode, LocalDate date, String who, char status) {
+            this.kind = kind; this.subjectCode = subjectCode; this.date = date; this.who = who; this.status = status;
+        }
+    }
+
+    /**
+     * Filters over attendance marks or medicals. Build with the fluent setters or parse the text form, e.g.
+     * {@code students subject:1032 streak:3}, {@code lecturers status:A month:this}, {@code medicals week:6}.
+     */
+    static final class Query {
+        enum Source { STUDENTS, LECTURERS, MEDICALS }
+
+        Source source = Source.STUDENTS;
+        String subjectCode, person;
+        LocalDate from, to;          // inclusive, null = open
+        Character status;
+        Boolean medicalCovered;      // null = don't care
+        int minStreak;               // > 0: consecutive absent sessions per person and subject
+
+        static Query students() { return new Query(); }
+        static Query lecturers() { Query q = new Query(); q.source = Source.LECTURERS; return q; }
+        static Query medicals() { Query q = new Query(); q.source = Source.MEDICALS; return q; }
+
+        Query subject(String code) { subjectCode = code; return this; }
+        Query person(String regNoOrUsername) { person = regNoOrUsername; return this; }
+        Query between(LocalDate from, LocalDate to) { this.from = from; this.to = to; return this; }
+        Query status(char s) { status = s; return this; }
+        Query medicalCovered(boolean covered) { medicalCovered = covered; return this; }
+        Query streak(int sessions) { minStreak = sessions; status = 'A'; return this; }
+
+        boolean inRange(LocalDate d) {
+            return (from == null || !d.isBefore(from)) && (to == null || !d.isAfter(to));
+        }
+
+        static Query parse(String text) {
+            Query q = new Query();
+            List<String> terms = tokenize(text);
+            for (int i = 0; i < terms.size(); i++) {
+                String term = terms.get(i);
+                if (i == 0 && !term.contains(":")) {
+                    switch (term.toLowerCase()) {
+                        case "students" -> q.source = Source.STUDENTS;
+                        case "lecturers" -> q.source = Source.LECTURERS;
+                        case "medicals" -> q.source = Source.MEDICALS;
+                        default -> throw new IllegalArgumentException("Unknown source '" + term + "' (students, lecturers, medicals)");
+                    }
+                    continue;
+                }
+                int colon = term.indexOf(':');
+                if (colon <= 0) throw new IllegalArgumentException("Expected key:value but got '" + term + "'");
+                String key = term.substring(0, colon).toLowerCase(), value = term.substring(colon + 1).trim();
+                try {
+                    switch (key) {
+                        case "subject" -> q.subjectCode = resolveSubject(value);
+                        case "student", "lecturer", "who" -> q.person = value;
+                        case "status" -> q.status = Character.toUpperCase(value.charAt(0));
+                        case "medical" -> q.medicalCovered = value.equalsIgnoreCase("yes") || value.equalsIgnoreCase("true");
+                        case "streak" -> q.streak(Integer.parseInt(value));
+                        case "date" -> {
+                            int dots = value.indexOf("..");
+                            if (dots < 0) { q.from = q.to = LocalDate.parse(value); }
+                            else {
+                                q.from = dots == 0 ? null : LocalDate.parse(value.substring(0, dots));
+                                q.to = dots + 2 == value.length() ? null : LocalDate.parse(value.substring(dots + 2));
+                            }
+                        }
+                        case "month" -> {
+                            YearMonth ym = value.equalsIgnoreCase("this") ? YearMonth.now() : YearMonth.parse(value);
+                            q.from = ym.atDay(1); q.to = ym.atEndOfMonth();
+                        }
+                        case "week" -> {
+                            LocalDate monday = weekStart(Integer.parseInt(value));
+                            q.from = monday; q.to = monday.plusDays(6);
+                        }
+                        default -> throw new IllegalArgumentException("Unknown filter '" + key + "'");
+                    }
+                } catch (DateTimeException | NumberFormatException | StringIndexOutOfBoundsException ex) {
+                    throw new IllegalArgumentException("Bad value for " + key + ": '" + value + "'");
+                }
+            }
+            return q;
+        }
+
+        private static List<String> tokenize(String text) {
+            List<String> out = new ArrayList<>();
+            StringBuilder cur = new StringBuilder();
+            boolean quoted = false;
+            for (char c : text.trim().toCharArray()) {
+                if (c == '"') { quoted = !quoted; continue; }
+                if (Character.isWhitespace(c) && !quoted) {
+                    if (cur.length() > 0) { out.add(cur.toString()); cur.setLength(0); }
+                } else cur.append(c);
+            }
+            if (quoted) throw new IllegalArgumentException("Unclosed quote");
+            if (cur.length() > 0) out.add(cur.toString());
+            return out;
+        }
+
+        // accepts the full code or its trailing number ("1032")
+        private static String resolveSubject(String value) {
+            for (Subject s : SUBJECTS) if (s.code.equalsIgnoreCase(value) || s.code.endsWith(" " + value)) return s.code;
+            throw new IllegalArgumentException("Unknown subject '" + value + "'");
+        }
+
+        // term week when the timetable has a term, otherwise ISO week of the current year
+        private static LocalDate weekStart(int week) {
+            if (week < 1) throw new NumberFormatException();
+            if (TIMETABLE.termStart != null) return TIMETABLE.termStart.with(DayOfWeek.MONDAY).plusWeeks(week - 1);
+            return LocalDate.now().with(IsoFields.WEEK_OF_WEEK_BASED_YEAR, week).with(DayOfWeek.MONDAY);
+        }
+
+        @Override public String toString() {
+            StringBuilder sb = new StringBuilder(source.toString().toLowerCase());
+            if (subjectCode != null) sb.append(" subject:\"").append(subjectCode).append('"');
+            if (person != null) sb.append(" who:").append(person);
+            if (from != null || to != null) sb.append(" date:").append(from == null ? "" : from).append("..").append(to == null ? "" : to);
+            if (minStreak > 0) sb.append(" streak:").append(minStreak);
+            else if (status != null) sb.append(" status:").append(status);
+            if (medicalCovered != null) sb.append(" medical:").append(medicalCovered ? "yes" : "no");
+            return sb.toString();
+        }
+    }
+
+    static final class QueryResult {
+        final String[] columns;
+        final List<Object[]> rows;
+        final String plan;
+        final long elapsedNanos;
+        QueryResult(String[] columns, List<Object[]> rows, String plan, long elapsedNanos) {
+            this.columns = columns; this.rows = rows; this.plan = plan; this.elapsedNanos = elapsedNanos;
+        }
+
+        String timing() {
+            return rows.size() + " row(s) in " + String.format("%.3f ms", elapsedNanos / 1_000_000.0) + " | plan: " + plan;
+        }
+
+        String toText() {
+            StringBuilder sb = new StringBuilder();
+            for (String c : columns) sb.append(String.format("%-22s", c));
+            sb.append('\n');
+            for (Object[] r : rows) {
+                for (Object v : r) sb.append(String.format("%-22s", v));
+                sb.append('\n');
+            }
+            return sb.append('\n').append(timing()).append('\n').toString();
+        }
+    }
+
+    /**
+     * Secondary indexes (by subject, date, person and status) over student and lecturer marks, plus medicals by
+     * student and start date. Kept current through StoreListener callbacks; the planner picks the smallest
+     * candidate set among the indexes the query can use and filters the rest.
+     */
+    static final class QueryEngine implements StoreListener {
+        private static final class MarkIndex {
+            final Map<String, Map<LocalDate, Map<String, MarkRow>>> primary = new HashMap<>();
+            final Map<String, Set<MarkRow>> bySubject = new HashMap<>();
+            final TreeMap<LocalDate, Set<MarkRow>> byDate = new TreeMap<>();
+            final Map<String, Set<MarkRow>> byPerson = new HashMap<>();
+            final Map<Character, Set<MarkRow>> byStatus = new HashMap<>();
+            int size;
+
+            void put(MarkKind kind, String subjectCode, LocalDate d, String who, char status) {
+                Map<String, MarkRow> session = primary.computeIfAbsent(subjectCode, k -> new HashMap<>()).computeIfAbsent(d, k -> new HashMap<>());
+                MarkRow row = session.get(who);
+                if (row != null) {
+                    if (row.status == status) return;
+                    remove(byStatus, row.status, row);
+                    row.status = status;
+                    byStatus.computeIfAbsent(status, k -> new HashSet<>()).add(row);
+                    return;
+                }
+                row = new MarkRow(kind, subjectCode, d, who, status);
+                session.put(who, row);
+                bySubject.computeIfAbsent(subjectCode, k -> new HashSet<>()).add(row);
+                byDate.computeIfAbsent(d, k -> new HashSet<>()).add(row);
+                byPerson.computeIfAbsent(who, k -> new HashSet<>()).add(row);
+                byStatus.computeIfAbsent(status, k -> new HashSet<>()).add(row);
+                size++;
+            }
+
+            void removePerson(String who) {
+                Set<MarkRow> rows = byPerson.remove(who);
+                if (rows == null) return;
+                for (MarkRow row : rows) {
+                    primary.get(row.subjectCode).get(row.date).remove(who);
+                    remove(bySubject, row.subjectCode, row);
+                    remove(byDate, row.date, row);
+                    remove(byStatus, row.status, row);
+                    size--;
+                }
+            }
+
+            private static <K> void remove(Map<K, Set<MarkRow>> index, K key, MarkRow row) {
+                Set<MarkRow> set = index.get(key);
+                if (set != null && set.remove(row) && set.isEmpty()) index.remove(key);
+            }
+        }
+
+        private final DataStore store;
+        private final MarkIndex students = new MarkIndex(), lecturers = new MarkIndex();
+        private final Map<String, List<Medical>> medicalsByReg = new HashMap<>();
+        private final TreeMap<LocalDate, List<Medical>> medicalsByStart = new TreeMap<>();
+
+        QueryEngine(DataStore store) {
+            this.store = store;
+            load(students, MarkKind.STUDENT, store.studentAttendance);
+            load(lecturers, MarkKind.LECTURER, store.lecturerAttendance);
+            for (Medical m : store.medicals) medicalAdded(m);
+        }
+
+        private static void load(MarkIndex idx, MarkKind kind, Map<String, Map<LocalDate, Map<String, Character>>> data) {
+            for (var subj : data.entrySet())
+                for (var session : subj.getValue().entrySet())
+                    for (var mark : session.getValue().entrySet())
+                        idx.put(kind, subj.getKey(), session.getKey(), mark.getKey(), mark.getValue());
+        }
+
+        // ---- store events ----
+        @Override public void studentMarked(String subjectCode, LocalDate d, String regNo, Character old, char status) {
+            students.put(MarkKind.STUDENT, subjectCode, d, regNo, status);
+        }
+
+        @Override public void lecturerMarked(String subjectCode, LocalDate d, String lecturerUsername, Character old, char status) {
+            lecturers.put(MarkKind.LECTURER, subjectCode, d, lecturerUsername, status);
+        }
+
+        @Override public void studentRemoved(String regNo) {
+            students.removePerson(regNo);
+            List<Medical> meds = medicalsByReg.remove(regNo);
+            if (meds != null) for (Medical m : meds) removeByStart(m);
+        }
+
+        @Override public void medicalAdded(Medical m) {
+            medicalsByReg.computeIfAbsent(m.regNo, k -> new ArrayList<>()).add(m);
+            medicalsByStart.computeIfAbsent(m.start, k -> new ArrayList<>()).add(m);
+        }
+
+        @Override public void medicalRemoved(Medical m) {
+            List<Medical> list = medicalsByReg.get(m.regNo);
+            if (list != null && list.remove(m) && list.isEmpty()) medicalsByReg.remove(m.regNo);
+            removeByStart(m);
+        }
+
+        private void removeByStart(Medical m) {
+            List<Medical> list = medicalsByStart.get(m.start);
+            if (list != null && list.remove(m) && list.isEmpty()) medicalsByStart.remove(m.start);
+        }
+
+        // ---- execution ----
+        QueryResult run(Query q) {
+            long t0 = System.nanoTime();
+            StringBuilder plan = new StringBuilder();
+            String[] columns;
+            List<Object[]> rows = new ArrayList<>();
+
+            if (q.source == Query.Source.MEDICALS) {
+                columns = new String[]{"Reg No", "Subject", "Start", "End", "Note"};
+                for (Medical m : medicalCandidates(q, plan)) {
+                    if (q.subjectCode != null && !("ALL".equals(m.subjectCodeOrAll) || q.subjectCode.equals(m.subjectCodeOrAll))) continue;
+                    if (q.person != null && !m.regNo.equals(q.person)) continue;
+                    if (q.to != null && m.start.isAfter(q.to)) continue;
+                    if (q.from != null && m.end.isBefore(q.from)) continue;
+                    rows.add(new Object[]{m.regNo, m.subjectCodeOrAll, m.start, m.end, m.note});
+                }
+                rows.sort(Comparator.comparing((Object[] r) -> (LocalDate) r[2]).thenComparing(r -> (String) r[0]));
+                return new QueryResult(columns, rows, plan.toString(), System.nanoTime() - t0);
+            }
+
+            MarkIndex idx = q.source == Query.Source.LECTURERS ? lecturers : students;
+            List<MarkRow> matches = new ArrayList<>();
+            for (MarkRow r : markCandidates(idx, q, plan)) {
+                if (q.subjectCode != null && !q.subjectCode.equals(r.subjectCode)) continue;
+                if (q.person != null && !q.person.equals(r.who)) continue;
+                if (q.status != null && q.status != r.status) continue;
+                if (!q.inRange(r.date) || store.holidays.contains(r.date)) continue;
+                if (q.medicalCovered != null && q.medicalCovered != coveredByMedical(r)) continue;
+                matches.add(r);
+            }
+            matches.sort(Comparator.comparing((MarkRow r) -> r.date).thenComparing(r -> r.subjectCode).thenComparing(r -> r.who));
+
+            if (q.minStreak > 0) {
+                columns = new String[]{"Who", "Name", "Subject", "From", "To", "Sessions"};
+                streaks(idx, matches, q.minStreak, rows);
+                plan.append(" + streak>=").append(q.minStreak);
+            } else {
+                columns = new String[]{"Date", "Subject", "Who", "Name", "Status"};
+                for (MarkRow r : matches) rows.add(new Object[]{r.date, r.subjectCode, r.who, displayName(r), r.status});
+            }
+            return new QueryResult(columns, rows, plan.toString(), System.nanoTime() - t0);
+        }
+
+        private Collection<MarkRow> markCandidates(MarkIndex idx, Query q, StringBuilder plan) {
+            Collection<MarkRow> best = null;
+            String bestName = "scan";
+            int bestSize = idx.size;
+
+            if (q.person != null) {
+                Set<MarkRow> c = idx.byPerson.getOrDefault(q.person, Set.of());
+                if (c.size() < bestSize) { best = c; bestSize = c.size(); bestName = "person"; }
+            }
+            if (q.subjectCode != null) {
+                Set<MarkRow> c = idx.bySubject.getOrDefault(q.subjectCode, Set.of());
+                if (c.size() < bestSize) { best = c; bestSize = c.size(); bestName = "subject"; }
+            }
+            if (q.status != null) {
+                Set<MarkRow> c = idx.byStatus.getOrDefault(q.status, Set.of());
+                if (c.size() < bestSize) { best = c; bestSize = c.size(); bestName = "status"; }
+            }
+            if (q.from != null || q.to != null) {
+                NavigableMap<LocalDate, Set<MarkRow>> range = idx.byDate;
+                if (q.from != null) range = range.tailMap(q.from, true);
+                if (q.to != null) range = range.headMap(q.to, true);
+                int n = 0;
+                for (Set<MarkRow> s : range.values()) n += s.size();
+                if (n < bestSize) {
+                    List<MarkRow> c = new ArrayList<>(n);
+                    for (Set<MarkRow> s : range.values()) c.addAll(s);
+                    best = c; bestSize = n; bestName = "date";
+                }
+            }
+            plan.append(bestName.equals("scan") ? "full scan" : "index(" + bestName + ")")
+                .append(" -> ").append(bestSize).append(" of ").append(idx.size).append(" marks");
+            if (best != null) return best;
+
+            List<MarkRow> all = new ArrayList<>(idx.size);
+            for (Set<MarkRow> s : idx.byDate.values()) all.addAll(s);
+            return all;
+        }
+
+        private Collection<Medical> medicalCandidates(Query q, StringBuilder plan) {
+            if (q.person != null) {
+                plan.append("index(student)");
+                return medicalsByReg.getOrDefault(q.person, List.of());
+            }
+            List<Medical> out = new ArrayList<>();
+            // a medical overlapping [from, to] must start on or before 'to'
+            Collection<List<Medical>> lists = q.to != null ? medicalsByStart.headMap(q.to, true).values() : medicalsByStart.values();
+            for (List<Medical> l : lists) out.addAll(l);
+            plan.append(q.to != null ? "index(start<=" + q.to + ")" : "full scan");
+            return out;
+        }
+
+        private boolean coveredByMedical(MarkRow r) {
+            if (r.kind != MarkKind.STUDENT) return false;
+            for (Medical m : medicalsByReg.getOrDefault(r.who, List.of())) {
+                if (!"ALL".equals(m.subjectCodeOrAll) && !r.subjectCode.equals(m.subjectCodeOrAll)) continue;
+                if (!r.date.isBefore(m.start) && !r.date.isAfter(m.end)) return true;
+            }
+            return false;
+        }
+
+        // matches are absent marks sorted by date; a streak is a run over consecutive sessions of the subject
+        private void streaks(MarkIndex idx, List<MarkRow> matches, int min, List<Object[]> out) {
+            Map<String, Map<LocalDate, Integer>> ordinals = new HashMap<>();
+            Map<String, List<MarkRow>> byKey = new TreeMap<>();
+            for (MarkRow r : matches) byKey.computeIfAbsent(r.who + "|" + r.subjectCode, k -> new ArrayList<>()).add(r);
+
+            for (List<MarkRow> list : byKey.values()) {
+                String subjectCode = list.get(0).subjectCode;
+                Map<LocalDate, Integer> ord = ordinals.computeIfAbsent(subjectCode, k -> sessionOrdinals(idx, k));
+                int runStart = 0;
+                for (int i = 1; i <= list.size(); i++) {
+                    boolean breaks = i == list.size() || ord.get(list.get(i).date) != ord.get(list.get(i - 1).date) + 1;
+                    if (!breaks) continue;
+                    int len = i - runStart;
+                    if (len >= min) {
+                        MarkRow first = list.get(runStart), last = list.get(i - 1);
+                        out.add(new Object[]{first.who, displayName(first), subjectCode, first.date, last.date, len});
+                    }
+                    runStart = i;
+                }
+            }
+        }
+
+        private Map<LocalDate, Integer> sessionOrdinals(MarkIndex idx, String subjectCode) {
+            List<LocalDate> dates = new ArrayList<>(idx.primary.getOrDefault(subjectCode, Map.of()).keySet());
+            if (idx == students) dates.addAll(store.studentAttendance.getOrDefault(subjectCode, Map.of()).keySet()); // empty sessions
+            dates.removeIf(store.holidays::contains);
+            TreeSet<LocalDate> sorted = new TreeSet<>(dates);
+            Map<LocalDate, Integer> ord = new HashMap<>();
+            int i = 0;
+            for (LocalDate d : sorted) ord.put(d, i++);
+            return ord;
+        }
+
+        private String displayName(MarkRow r) {
+            if (r.kind == MarkKind.STUDENT) {
+                Student s = store.studentsByReg.get(r.who);
+                return s == null ? "" : s.name;
+            }
+            Subject s = TIMETABLE.subjectForLecturer(r.who);
+            return s == null ? "" : s.lecturerName;
+        }
+    }
+
+    // -------- Storage --------
+    /**
+     * One DataStore mutation in a form that can be written to disk and replayed. Field meaning depends on the
+     * type: key is the regNo / lecturer username, subject the subject code (or "ALL" for medicals), date/until
+     * the session date or medical range, text the student name / medical note / notification message.
+     */
+    static final class StoreOp {
+        enum Type {
+            ADD_STUDENT, REMOVE_STUDENT, ADD_HOLIDAY, REMOVE_HOLIDAY, ADD_MEDICAL, REMOVE_MEDICAL,
+            ADD_NOTIFICATION, READ_NOTIFICATIONS, OPEN_SESSION, MARK_STUDENT, MARK_LECTURER
+        }
+
+        final Type type;
+        final String key, subject, text;
+        final LocalDate date, until;
+        final LocalDateTime time;
+        final char status;
+        final boolean flag;
+
+        StoreOp(Type type, String key, String subject, String text, LocalDate date, LocalDate until,
+                LocalDateTime time, char status, boolean flag) {
+            this.type = type; this.key = key; this.subject = subject; this.text = text;
+            this.date = date; this.until = until; this.time = time; this.status = status; this.flag = flag;
+        }
+
+        static StoreOp of(Type type, String key) { return new StoreOp(type, key, null, null, null, null, null, ' ', false); }
+        static StoreOp holiday(Type type, LocalDate d) { return new StoreOp(type, null, null, null, d, null, null, ' ', false); }
+        static StoreOp student(Student s) { return new StoreOp(Type.ADD_STUDENT, s.regNo, null, s.name, null, null, null, ' ', false); }
+        static StoreOp medical(Type type, Medical m) {
+            return new StoreOp(type, m.regNo, m.subjectCodeOrAll, m.note, m.start, m.end, null, ' ', false);
+        }
+        static StoreOp notification(Notification n) {
+            return new StoreOp(Type.ADD_NOTIFICATION, n.lecturerUsername, null, n.message, null, null, n.createdAt, ' ', n.read);
+        }
+        static StoreOp session(String subjectCode, LocalDate d) {
+            return new StoreOp(Type.OPEN_SESSION, null, subjectCode, null, d, null, null, ' ', false);
+        }
+        static StoreOp mark(Type type, String subjectCode, LocalDate d, String who, char status) {
+            return new StoreOp(type, who, subjectCode, null, d, null, null, status, false);
+        }
+
+        boolean isMark() { return type == Type.OPEN_SESSION || type == Type.MARK_STUDENT || type == Type.MARK_LECTURER; }
+
+        /** Replays this op through the DataStore mutators, so listeners on the target see it too. */
+        void applyTo(DataStore ds) {
+            switch (type) {
+                case ADD_STUDENT -> ds.addStudent(new Student(key, text));
+                case REMOVE_STUDENT -> ds.removeStudent(key);
+                case ADD_HOLIDAY -> ds.addHoliday(date);
+                case REMOVE_HOLIDAY -> ds.removeHoliday(date);
+                case ADD_MEDICAL -> ds.addMedical(new Medical(key, subject, date, until, text));
+                case REMOVE_MEDICAL -> {
+                    boolean[] done = {false}; // one op per removed record, so remove a single match
+                    ds.removeMedicals(m -> !done[0] && (done[0] = m.regNo.equals(key) && m.subjectCodeOrAll.equals(subject)
+                            && m.start.equals(date) && m.end.equals(until) && Objects.equals(m.note, text)));
+                }
+                case ADD_NOTIFICATION -> {
+                    Notification n = new Notification(key, text);
+                    n.createdAt = time; n.read = flag;
+                    ds.addNotification(n);
+                }
+                case READ_NOTIFICATIONS -> ds.markNotificationsRead(key);
+                case OPEN_SESSION -> ds.openSession(subject, date);
+                case MARK_STUDENT -> ds.markStudent(subject, date, key, status);
+                case MARK_LECTURER -> ds.markLecturer(subject, date, key, status);
+            }
+        }
+
+        void write(DataOutput out) throws IOException {
+            out.writeByte(type.ordinal());
+            writeString(out, key); writeString(out, subject); writeString(out, text);
+            out.writeLong(date == null ? Long.MIN_VALUE : date.toEpochDay());
+            out.writeLong(until == null ? Long.MIN_VALUE : until.toEpochDay());
+            out.writeLong(time == null ? Long.MIN_VALUE : time.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(time == null ? 0 : time.getNano());
+            out.writeChar(status);
+            out.writeBoolean(flag);
+        }
+
+        static StoreOp read(DataInput in) throws IOException {
+            Type type = Type.values()[in.readUnsignedByte()];
+            String key = readString(in), subject = readString(in), text = readString(in);
+            long date = in.readLong(), until = in.readLong(), secs = in.readLong();
+            int nanos = in.readInt();
+            return new StoreOp(type, key, subject, text,
+                    date == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(date),
+                    until == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(until),
+                    secs == Long.MIN_VALUE ? null : LocalDateTime.ofEpochSecond(secs, nanos, ZoneOffset.UTC),
+                    in.readChar(), in.readBoolean());
+        }
+
+        static void writeString(DataOutput out, String s) throws IOException {
+            out.writeBoolean(s != null);
+            if (s != null) out.writeUTF(s);
+        }
+
+        static String readString(DataInput in) throws IOException { return in.readBoolean() ? in.readUTF() : null; }
+
+        /** Ops that rebuild the given store from empty. */
+        static List<StoreOp> dump(DataStore ds) {
+            List<StoreOp> ops = new ArrayList<>();
+            for (Student s : ds.studentsByReg.values()) ops.add(student(s));
+            for (LocalDate d : ds.holidays) ops.add(holiday(Type.ADD_HOLIDAY, d));
+            for (Medical m : ds.medicals) ops.add(medical(Type.ADD_MEDICAL, m));
+            for (Notification n : ds.notifications) ops.add(notification(n));
+            dumpMarks(ds.studentAttendance, Type.MARK_STUDENT, ops);
+            dumpMarks(ds.lecturerAttendance, Type.MARK_LECTURER, ops);
+            return ops;
+        }
+
+        private static void dumpMarks(Map<String, Map<LocalDate, Map<String, Character>>> data, Type type, List<StoreOp> ops) {
+            for (var subj : data.entrySet()) {
+                for (var session : subj.getValue().entrySet()) {
+                    if (type == Type.MARK_STUDENT) ops.add(session(subj.getKey(), session.getKey()));
+                    for (var mark : session.getValue().entrySet())
+                        ops.add(mark(type, subj.getKey(), session.getKey(), mark.getKey(), mark.getValue()));
+                }
+            }
+        }
+
+        /** Listener that turns every store mutation into an op for the given sink. */
+        static StoreListener recorder(Consumer<StoreOp> sink) {
+            return new StoreListener() {
+                @Override public void studentAdded(Student s) { sink.accept(student(s)); }
+                @Override public void studentRemoved(String regNo) { sink.accept(of(Type.REMOVE_STUDENT, regNo)); }
+                @Override public void holidayAdded(LocalDate d) { sink.accept(holiday(Type.ADD_HOLIDAY, d)); }
+                @Override public void holidayRemoved(LocalDate d) { sink.accept(holiday(Type.REMOVE_HOLIDAY, d)); }
+                @Override public void medicalAdded(Medical m) { sink.accept(medical(Type.ADD_MEDICAL, m)); }
+                @Override public void medicalRemoved(Medical m) { sink.accept(medical(Type.REMOVE_MEDICAL, m)); }
+                @Override public void notificationAdded(Notification n) { sink.accept(notification(n)); }
+                @Override public void notificationsRead(String u) { sink.accept(of(Type.READ_NOTIFICATIONS, u)); }
+                @Override public void sessionOpened(String subjectCode, LocalDate d) { sink.accept(session(subjectCode, d)); }
+                @Override public void studentMarked(String subjectCode, LocalDate d, String regNo, Character old, char status) {
+                    sink.accept(mark(Type.MARK_STUDENT, subjectCode, d, regNo, status));
+                }
+                @Override public void lecturerMarked(String subjectCode, LocalDate d, String u, Character old, char status) {
+                    sink.accept(mark(Type.MARK_LECTURER, subjectCode, d, u, status));
+                }
+            };
+        }
+    }
+
+    interface RecordReader { void read(long offset, DataInputStream in) throws IOException; }
+
+    /**
+     * Reads {@code [int length][body]} records starting at {@code from} and returns the offset just past the
+     * last complete one. A torn tail (a crash or a writer mid-append) is left unread.
+     */
+    static long readRecords(File f, long from, RecordReader reader) throws IOException {
+        return readRecords(f, from, Long.MAX_VALUE, reader);
+    }
+
+    /** As above, but stops at {@code to}, e.g. a committed length with another writer appending past it. */
+    static long readRecords(File f, long from, long to, RecordReader reader) throws IOException {
+        if (!f.exists()) return from;
+        long good = from;
+        try (FileInputStream fis = new FileInputStream(f)) {
+            fis.getChannel().position(from);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(fis));
+            while (good < to) {
+                int len;
+                try { len = in.readInt(); } catch (EOFException eof) { break; }
+                byte[] body = new byte[len];
+                try { in.readFully(body); } catch (EOFException eof) { break; }
+                reader.read(good, new DataInputStream(new ByteArrayInputStream(body)));
+                good += 4 + len;
+            }
+        }
+        return good;
+    }
+
+    static void truncateTail(File f, long good) throws IOException {
+        long length = f.exists() ? f.length() : 0;
+        if (length == good) return;
+        // setLength would zero-fill the gap instead of failing
+        if (length < good) throw new IOException(f + " is " + length + " bytes, shorter than its committed " + good);
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) { raf.setLength(good); }
+    }
+
+    interface MarkVisitor { void visit(String subjectCode, LocalDate d, String who, char status); }
+
+    /**
+     * Persistence SPI. The UI still works on a fully loaded DataStore, but saves hand over only the ops recorded
+     * since the previous save, so backends that support it can apply point updates instead of rewriting. The read
+     * methods serve headless reports that should not load every mark ({@link Reports#lecturerSummary}).
+     * Spec strings are {@code ser:<file>} or {@code indexed:<directory>}.
+     */
+    interface StorageBackend {
+        String describe();
+
+        DataStore load() throws IOException;
+
+        /** Persists {@code changes}; {@code current} is the full in-memory state after them. */
+        void save(DataStore current, List<StoreOp> changes) throws IOException;
+
+        /** Replaces everything in this backend with the contents of {@code ds}. */
+        void importAll(DataStore ds) throws IOException;
+
+        Collection<Student> students() throws IOException;
+
+        Set<LocalDate> holidays() throws IOException;
+
+        SortedSet<LocalDate> sessions(MarkKind kind, String subjectCode) throws IOException;
+
+        /** Visits marks for one subject with from <= date <= to (either bound may be null), in date order. */
+        void scanMarks(MarkKind kind, String subjectCode, LocalDate from, LocalDate to, MarkVisitor v) throws IOException;
+
+        List<Medical> medicalsFor(String regNo) throws IOException;
+
+        static StorageBackend open(String spec) {
+            int colon = spec.indexOf(':');
+            String kind = colon < 0 ? "ser" : spec.substring(0, colon);
+            String path = colon < 0 ? spec : spec.substring(colon + 1);
+            return switch (kind) {
+                case "ser" -> new SerialFileBackend(new File(path));
+                case "indexed" -> new IndexedFileBackend(new File(path));
+                default -> throw new IllegalArgumentException("Unknown storage '" + kind + "' (use ser:<file> or indexed:<dir>)");
+            };
+        }
+    }
+
+    /** The original single-file ObjectOutputStream format: every save rewrites the whole store. */
+    static final class SerialFileBackend implements StorageBackend {
+        final File file;
+        private DataStore current;
+
+        SerialFileBackend(File file) { this.file = file; }
+
+        @Override public String describe() { return "ser:" + file; }
+
+        @Override public DataStore load() throws IOException {
+            try {
+                return current = readStore(file);
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override public void save(DataStore ds, List<StoreOp> changes) throws IOException {
+            try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))) {
+                oos.writeObject(ds);
+            }
+            current = ds;
+        }
+
+        @Override public void importAll(DataStore ds) throws IOException { save(ds, List.of()); }
+
+        private DataStore current() throws IOException { return current != null ? current : load(); }
+
+        @Override public Collection<Student> students() throws IOException { return current().studentsByReg.values(); }
+
+        @Override public Set<LocalDate> holidays() throws IOException { return current().holidays; }
+
+        @Override public SortedSet<LocalDate> sessions(MarkKind kind, String subjectCode) throws IOException {
+            return new TreeSet<>(marks(kind).getOrDefault(subjectCode, Map.of()).keySet());
+        }
+
+        @Override public void scanMarks(MarkKind kind, String subjectCode, LocalDate from, LocalDate to, MarkVisitor v) throws IOException {
+            Map<LocalDate, Map<String, Character>> dateMap = marks(kind).getOrDefault(subjectCode, Map.of());
+            for (LocalDate d : new TreeSet<>(dateMap.keySet())) {
+                if ((from != null && d.isBefore(from)) || (to != null && d.isAfter(to))) continue;
+                for (var mark : dateMap.get(d).entrySet()) v.visit(subjectCode, d, mark.getKey(), mark.getValue());
+            }
+        }
+
+        private Map<String, Map<LocalDate, Map<String, Character>>> marks(MarkKind kind) throws IOException {
+            return kind == MarkKind.STUDENT ? current().studentAttendance : current().lecturerAttendance;
+        }
+
+        @Override public List<Medical> medicalsFor(String regNo) throws IOException {
+            List<Medical> out = new ArrayList<>();
+            for (Medical m : current().medicals) if (m.regNo.equals(regNo)) out.add(m);
+            return out;
+        }
+    }
+
+    /**
+     * Embedded file-based engine in a directory of two append-only files:
+     * <ul>
+     *   <li>{@code marks.dat}: one block per saved session, {@code [int length][byte kind][UTF subject]
+     *       [long epochDay][int n]{[UTF who][char status]}*n}. Later blocks for the same session override earlier
+     *       ones. Only block offsets are kept in memory, indexed by kind, subject and date, so range scans read
+     *       just the blocks they need.</li>
+     *   <li>{@code journal.dat}: one record per save, {@code [int length][long changeSeq][long marksLength]
+     *       [int n]{StoreOp}*n[int t]{[UTF regNo][long before]}*t}, holding the ops for students, holidays, medicals
+     *       and notifications. These are small and replayed into memory on open.</li>
+     * </ul>
+     * A save appends its blocks first and its journal record last; the record is the commit. Readers ignore
+     * anything in marks.dat past the last record's {@code marksLength}, and a torn journal record: both belong to a
+     * save that failed or is still running in another process. The writer cuts them off right before its own
+     * append, so a failed save leaves no trace and can simply be retried. Removing a student
+     * is a tombstone: their student marks in blocks before {@code before} are skipped when reading.
+     * {@code changeSeq} is the change-log sequence the data corresponds to; it commits together with the data, so
+     * change-log recovery replays exactly the saves that never committed.
+     * <p>
+     * Both files only grow, and open replays the whole journal. {@link #compact()} rewrites the live state into
+     * {@code <dir>.compact} and swaps it in by renaming; if that is interrupted between the two renames, only the
+     * compacted copy is left and it is used as is.
+     */
+    static final class IndexedFileBackend implements StorageBackend {
+        final File dir, compactDir, oldDir;
+        private File journalFile, marksFile;
+        private DataStore entities;
+        // [kind] subject -> epochDay -> block offsets in file order
+        private final List<Map<String, TreeMap<Long, List<Long>>>> index = List.of(new HashMap<>(), new HashMap<>());
+        // regNo -> marks.dat offset; that student's marks in earlier blocks belong to a removed registration
+        private final Map<String, Long> deadBefore = new HashMap<>();
+        // committed sizes of both files and the change-log sequence of the last commit
+        private long journalLength, marksLength, changeSeq;
+
+        IndexedFileBackend(File dir) {
+            this.dir = dir;
+            this.compactDir = new File(dir.getPath() + ".compact");
+            this.oldDir = new File(dir.getPath() + ".old");
+            use(dir);
+        }
+
+        private void use(File base) {
+            journalFile = new File(base, "journal.dat");
+            marksFile = new File(base, "marks.dat");
+        }
+
+        // a compaction stopped between its two renames: the compacted copy is complete, move it into place
+        private void finishCompaction() throws IOException {
+            if (dir.isDirectory() || !compactDir.isDirectory()) return;
+            Files.move(compactDir.toPath(), dir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            use(dir);
+        }
+
+        @Override public String describe() { return "indexed:" + dir; }
+
+        // read-only: a reader may run beside the writing process, so bytes past the committed lengths are ignored,
+        // not cut off, and nothing is created
+        private void open() throws IOException {
+            if (entities != null) return;
+            use(!dir.isDirectory() && compactDir.isDirectory() ? compactDir : dir);
+            DataStore ds = new DataStore();
+            deadBefore.clear();
+            marksLength = changeSeq = 0;
+            journalLength = readRecords(journalFile, 0, (offset, in) -> {
+                changeSeq = in.readLong();
+                marksLength = in.readLong();
+                for (int n = in.readInt(); n > 0; n--) StoreOp.read(in).applyTo(ds);
+                for (int n = in.readInt(); n > 0; n--) deadBefore.merge(in.readUTF(), in.readLong(), Math::max);
+            });
+            long marksSize = marksFile.exists() ? marksFile.length() : 0;
+            if (marksSize < marksLength) throw new IOException(marksFile + " is " + marksSize + " bytes, shorter than its committed " + marksLength);
+            scanBlocks();
+            entities = ds;
+        }
+
+        // writer only, right before its own append: cuts both files back to the last commit
+        private void rollback() throws IOException {
+            truncateTail(journalFile, journalLength);
+            truncateTail(marksFile, marksLength);
+        }
+
+        // rebuilds the offset index from the block headers in marks.dat
+        private void scanBlocks() throws IOException {
+            for (var m : index) m.clear();
+            readRecords(marksFile, 0, marksLength, (offset, in) -> {
+                int kind = in.readUnsignedByte();
+                String subject = in.readUTF();
+                long day = in.readLong();
+                index.get(kind).computeIfAbsent(subject, k -> new TreeMap<>()).computeIfAbsent(day, k -> new ArrayList<>()).add(offset);
+            });
+        }
+
+        private boolean dead(int kind, String who, long offset) {
+            if (kind != MarkKind.STUDENT.ordinal()) return false;
+            Long before = deadBefore.get(who);
+            return before != null && offset < before;
+        }
+
+        @Override public DataStore load() throws IOException {
+            open();
+            DataStore ds = new DataStore();
+            ds.studentsByReg.putAll(entities.studentsByReg);
+            ds.holidays.addAll(entities.holidays);
+            ds.medicals.addAll(entities.medicals);
+            ds.notifications.addAll(entities.notifications);
+            ds.changeSeq = changeSeq;
+            readRecords(marksFile, 0, marksLength, (offset, in) -> {
+                int kind = in.readUnsignedByte();
+                String subject = in.readUTF();
+                LocalDate d = LocalDate.ofEpochDay(in.readLong());
+                var target = kind == MarkKind.STUDENT.ordinal() ? ds.studentAttendance : ds.lecturerAttendance;
+                Map<String, Character> session = target.computeIfAbsent(subject, k -> new HashMap<>()).computeIfAbsent(d, k -> new HashMap<>());
+                for (int n = in.readInt(); n > 0; n--) {
+                    String who = in.readUTF();
+                    char status = in.readChar();
+                    if (!dead(kind, who, offset)) session.put(who, status);
+                }
+            });
+            return ds;
+        }
+
+        @Override public void save(DataStore current, List<StoreOp> changes) throws IOException {
+            open();
+            if (changes.isEmpty()) return;
+            List<StoreOp> ops = new ArrayList<>();
+            Map<String, Long> tombstones = new LinkedHashMap<>();
+            ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+            List<Runnable> indexUpdates = new ArrayList<>();
+            // consecutive marks for the same session become one block
+            List<Map<String, Map<LocalDate, Map<String, Character>>>> pending = List.of(new LinkedHashMap<>(), new LinkedHashMap<>());
+            for (StoreOp op : changes) {
+                if (op.isMark()) {
+                    int kind = op.type == StoreOp.Type.MARK_LECTURER ? 1 : 0;
+                    Map<String, Character> session = pending.get(kind).computeIfAbsent(op.subject, k -> new LinkedHashMap<>())
+                            .computeIfAbsent(op.date, k -> new LinkedHashMap<>());
+                    if (op.type != StoreOp.Type.OPEN_SESSION) session.put(op.key, op.status);
+                    continue;
+                }
+                ops.add(op);
+                if (op.type == StoreOp.Type.REMOVE_STUDENT) {
+                    encodeBlocks(pending, blocks, indexUpdates);
+                    for (var m : pending) m.clear();
+                    tombstones.merge(op.key, marksLength + blocks.size(), Math::max);
+                }
+            }
+            encodeBlocks(pending, blocks, indexUpdates);
+            commit(current.changeSeq, ops, tombstones, blocks, indexUpdates);
+        }
+
+        @Override public void importAll(DataStore ds) throws IOException {
+            finishCompaction();
+            if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+            Files.deleteIfExists(journalFile.toPath());
+            Files.deleteIfExists(marksFile.toPath());
+            entities = null;
+            open();
+            List<StoreOp> ops = new ArrayList<>();
+            for (StoreOp op : StoreOp.dump(ds)) if (!op.isMark()) ops.add(op);
+            ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+            List<Runnable> indexUpdates = new ArrayList<>();
+            encodeBlocks(List.of(ds.studentAttendance, ds.lecturerAttendance), blocks, indexUpdates);
+            commit(ds.changeSeq, ops, Map.of(), blocks, indexUpdates);
+        }
+
+        /**
+         * Rewrites the directory with only the live state: one journal record and one block per session. Run it
+         * while no other process is saving here; readers may keep running.
+         */
+        String compact() throws IOException {
+            finishCompaction();
+            deleteTree(oldDir);
+            DataStore ds = load();
+            long before = journalFile.length() + marksFile.length();
+            deleteTree(compactDir);
+            new IndexedFileBackend(compactDir).importAll(ds);
+            if (dir.isDirectory()) Files.move(dir.toPath(), oldDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            Files.move(compactDir.toPath(), dir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            deleteTree(oldDir);
+            entities = null;
+            use(dir);
+            return "Compacted " + describe() + ": " + before + " -> " + (journalFile.length() + marksFile.length()) + " bytes.";
+        }
+
+        private static void deleteTree(File f) throws IOException {
+            File[] children = f.listFiles();
+            if (children != null) for (File c : children) deleteTree(c);
+            Files.deleteIfExists(f.toPath());
+        }
+
+        // appends blocks at the committed end of marks.dat; the index only learns about them after the commit
+        private void encodeBlocks(List<Map<String, Map<LocalDate, Map<String, Character>>>> byKind,
+                                  ByteArrayOutputStream blocks, List<Runnable> indexUpdates) throws IOException {
+            DataOutputStream out = new DataOutputStream(blocks);
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            for (int kind = 0; kind < 2; kind++) {
+                for (var subj : byKind.get(kind).entrySet()) {
+                    for (var session : subj.getValue().entrySet()) {
+                        buf.reset();
+                        DataOutputStream b = new DataOutputStream(buf);
+                        b.writeByte(kind); b.writeUTF(subj.getKey()); b.writeLong(session.getKey().toEpochDay());
+                        b.writeInt(session.getValue().size());
+                        for (var mark : session.getValue().entrySet()) { b.writeUTF(mark.getKey()); b.writeChar(mark.getValue()); }
+                        long offset = marksLength + blocks.size();
+                        out.writeInt(buf.size());
+                        buf.writeTo(out);
+                        int k = kind;
+                        String subject = subj.getKey();
+                        long day = session.getKey().toEpochDay();
+                        indexUpdates.add(() -> index.get(k).computeIfAbsent(subject, s -> new TreeMap<>())
+                                .computeIfAbsent(day, s -> new ArrayList<>()).add(offset));
+                    }
+                }
+            }
+        }
+
+        private void commit(long seq, List<StoreOp> ops, Map<String, Long> tombstones, ByteArrayOutputStream blocks,
+                            List<Runnable> indexUpdates) throws IOException {
+            long newMarksLength = marksLength + blocks.size();
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            DataOutputStream b = new DataOutputStream(buf);
+            b.writeLong(seq);
+            b.writeLong(newMarksLength);
+            b.writeInt(ops.size());
+            for (StoreOp op : ops) op.write(b);
+            b.writeInt(tombstones.size());
+            for (var t : tombstones.entrySet()) { b.writeUTF(t.getKey()); b.writeLong(t.getValue()); }
+
+            finishCompaction();
+            if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+            rollback(); // leftovers of an earlier failed save
+            try {
+                if (blocks.size() > 0) append(marksFile, blocks);
+                ByteArrayOutputStream record = new ByteArrayOutputStream();
+                new DataOutputStream(record).writeInt(buf.size());
+                buf.writeTo(record);
+                append(journalFile, record);
+            } catch (IOException e) {
+                try { rollback(); } catch (IOException again) { e.addSuppressed(again); }
+                throw e;
+            }
+            journalLength = journalFile.length();
+            marksLength = newMarksLength;
+            changeSeq = seq;
+            for (StoreOp op : ops) op.applyTo(entities);
+            for (var t : tombstones.entrySet()) deadBefore.merge(t.getKey(), t.getValue(), Math::max);
+            for (Runnable r : indexUpdates) r.run();
+        }
+
+        private static void append(File f, ByteArrayOutputStream data) throws IOException {
+            try (FileOutputStream fos = new FileOutputStream(f, true)) {
+                data.writeTo(fos);
+                fos.getFD().sync();
+            }
+        }
+
+        @Override public Collection<Student> students() throws IOException {
+            open();
+            return entities.studentsByReg.values();
+        }
+
+        @Override public Set<LocalDate> holidays() throws IOException {
+            open();
+            return entities.holidays;
+        }
+
+        @Override public SortedSet<LocalDate> sessions(MarkKind kind, String subjectCode) throws IOException {
+            open();
+            SortedSet<LocalDate> out = new TreeSet<>();
+            for (long day : index.get(kind.ordinal()).getOrDefault(subjectCode, new TreeMap<>()).keySet()) out.add(LocalDate.ofEpochDay(day));
+            return out;
+        }
+
+        @Override public void scanMarks(MarkKind kind, String subjectCode, LocalDate from, LocalDate to, MarkVisitor v) throws IOException {
+            open();
+            NavigableMap<Long, List<Long>> days = index.get(kind.ordinal()).getOrDefault(subjectCode, new TreeMap<>());
+            if (from != null) days = days.tailMap(from.toEpochDay(), true);
+            if (to != null) days = days.headMap(to.toEpochDay(), true);
+            if (days.isEmpty()) return;
+
+            try (RandomAccessFile raf = new RandomAccessFile(marksFile, "r")) {
+                for (var e : days.entrySet()) {
+                    LocalDate d = LocalDate.ofEpochDay(e.getKey());
+                    Map<String, Character> merged = new LinkedHashMap<>();
+                    for (long offset : e.getValue()) {
+                        raf.seek(offset);
+                        byte[] body = new byte[raf.readInt()];
+                        raf.readFully(body);
+                        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+                        in.readUnsignedByte(); in.readUTF(); in.readLong();
+                        for (int n = in.readInt(); n > 0; n--) {
+                            String who = in.readUTF();
+                            char status = in.readChar();
+                            if (!dead(kind.ordinal(), who, offset)) merged.put(who, status);
+                        }
+                    }
+                    for (var mark : merged.entrySet()) v.visit(subjectCode, d, mark.getKey(), mark.getValue());
+                }
+            }
+        }
+
+        @Override public List<Medical> medicalsFor(String regNo) throws IOException {
+            open();
+            List<Medical> out = new ArrayList<>();
+            for (Medical m : entities.medicals) if (m.regNo.equals(regNo)) out.add(m);
+            return out;
+        }
+    }
+
+    /** Copies everything from one backend to another, e.g. {@code --migrate ser:attendance-data.ser indexed:attendance-db}. */
+    static String migrate(StorageBackend from, StorageBackend to) throws IOException {
+        DataStore ds = from.load();
+        to.importAll(ds);
+        int marks = 0;
+        for (var subj : ds.studentAttendance.values()) for (var session : subj.values()) marks += session.size();
+        return "Migrated " + from.describe() + " -> " + to.describe() + ": " +
+                ds.studentsByReg.size() + " students, " + marks + " student marks, " +
+                ds.holidays.size() + " holidays, " + ds.medicals.size() + " medicals, " +
+                ds.notifications.size() + " notifications.";
+    }
+
+    // -------- Replication --------
+    /**
+     * Ordered change stream for a separate reporting node. Each save appends the ops recorded since the previous
+     * save as {@code [int length][long seq][long epochMillis][StoreOp]} records and fsyncs before storage is
+     * written, so the log is the source of truth if the two disagree after a crash. Every
+     * {@link #SNAPSHOT_EVERY} changes the primary also calls {@link #snapshotIfDue} to write {@code <log>.snapshot}
+     * = {@code [long seq][long logOffset][DataStore]}, which is where a replica starts. That is kept apart from
+     * {@link #append}: once the records are written they are published, whether or not a snapshot follows.
+     */
+    static final class ChangeLog {
+        static final int SNAPSHOT_EVERY = 5_000;
+
+        final File logFile, snapshotFile;
+        private long lastSeq, length;
+        private long snapshotSeq = -1; // -1 = missing or stale, write one on the next chance
+
+        ChangeLog(File logFile) {
+            this.logFile = logFile;
+            this.snapshotFile = snapshotFileFor(logFile);
+        }
+
+        static File snapshotFileFor(File logFile) { return new File(logFile.getPath() + ".snapshot"); }
+
+        long lastSeq() { return lastSeq; }
+
+        /** Scans the log and returns the ops published after {@code store.changeSeq}, i.e. ones storage never got. */
+        List<StoreOp> open(DataStore store) throws IOException {
+            List<StoreOp> missed = new ArrayList<>();
+            long[] last = {0};
+            length = readRecords(logFile, 0, (offset, in) -> {
+                long seq = in.readLong();
+                in.readLong();
+                StoreOp op = StoreOp.read(in);
+                last[0] = seq;
+                if (seq > store.changeSeq) missed.add(op);
+            });
+            truncateTail(logFile, length);
+            lastSeq = Math.max(last[0], store.changeSeq); // numbering stays monotonic if the log was reset
+
+            snapshotSeq = -1;
+            if (snapshotFile.exists() && last[0] >= store.changeSeq) {
+                // only the header is read; the DataStore after it is left alone
+                try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(snapshotFile))) {
+                    long seq = in.readLong(), offset = in.readLong();
+                    if (offset <= length) snapshotSeq = seq;
+                } catch (IOException e) {
+                    snapshotSeq = -1;
+                }
+            }
+            return missed;
+        }
+
+        void append(List<StoreOp> ops, DataStore store) throws IOException {
+            if (ops.isEmpty()) return;
+            long seq = lastSeq, now = System.currentTimeMillis();
+            try (FileOutputStream fos = new FileOutputStream(logFile, true);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+                ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                for (StoreOp op : ops) {
+                    buf.reset();
+                    DataOutputStream b = new DataOutputStream(buf);
+                    b.writeLong(++seq);
+                    b.writeLong(now);
+                    op.write(b);
+                    out.writeInt(buf.size());
+                    buf.writeTo(out);
+                }
+                out.flush();
+                fos.getFD().sync();
+                length += out.size();
+            } catch (IOException e) {
+                truncateTail(logFile, length); // drop a partial batch so the next append starts clean
+                throw e;
+            }
+            lastSeq = seq;
+            store.changeSeq = seq;
+        }
+
+        void snapshotIfDue(DataStore store) throws IOException {
+            if (snapshotSeq >= 0 && lastSeq - snapshotSeq < SNAPSHOT_EVERY) return;
+            File tmp = new File(snapshotFile.getPath() + ".tmp");
+            try (FileOutputStream fos = new FileOutputStream(tmp);
+                 ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(fos))) {
+                oos.writeLong(lastSeq);
+                oos.writeLong(length);
+                oos.writeObject(store);
+                oos.flush();
+                fos.getFD().sync();
+            }
+            Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshotSeq = lastSeq;
+        }
+    }
+
+    /**
+     * Read-only copy of the primary's data, kept current by tailing its change log. It starts from the snapshot
+     * and the log offset stored with it, then applies new records on each {@link #poll()}. A QueryEngine rides
+     * on the replica's own store, so reports and queries never touch the primary's process or files.
+     */
+    static final class Replica {
+        final File logFile;
+        final DataStore store;
+        final QueryEngine queries;
+        private long offset, appliedSeq;
+        private long lastApplyLagMillis = -1;
+        private LocalDateTime lastPoll;
+
+        private Replica(File logFile, DataStore store, long offset) {
+            this.logFile = logFile; this.store = store; this.offset = offset;
+            this.appliedSeq = store.changeSeq;
+            this.queries = new QueryEngine(store);
+            store.addListener(queries);
+        }
+
+        static Replica fromSnapshot(File logFile) throws IOException {
+            File snap = ChangeLog.snapshotFileFor(logFile);
+            if (!snap.exists()) throw new FileNotFoundException(snap + " (start the primary with -Dattendance.changelog=" + logFile + ")");
+            try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(snap)))) {
+                long seq = ois.readLong(), offset = ois.readLong();
+                DataStore ds = (DataStore) ois.readObject();
+                ds.changeSeq = seq;
+                return new Replica(logFile, ds, offset);
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+
+        /** Applies every complete record published since the last poll and returns how many there were. */
+        synchronized int poll() throws IOException {
+            if (logFile.length() < offset) throw new IOException(logFile + " was truncated; restart the replica from the snapshot");
+            int[] applied = {0};
+            offset = readRecords(logFile, offset, (pos, in) -> {
+                long seq = in.readLong(), publishedAt = in.readLong();
+                StoreOp op = StoreOp.read(in);
+                if (seq <= appliedSeq) return; // already part of the snapshot
+                op.applyTo(store);
+                appliedSeq = store.changeSeq = seq;
+                lastApplyLagMillis = System.currentTimeMillis() - publishedAt;
+                applied[0]++;
+            });
+            lastPoll = LocalDateTime.now();
+            return applied[0];
+        }
+
+        /** Sequence and time lag behind the primary's log. */
+        synchronized String lag() throws IOException {
+            long[] head = {appliedSeq};
+            readRecords(logFile, offset, (pos, in) -> head[0] = in.readLong());
+            return "applied seq " + appliedSeq + ", log head seq " + head[0] + " (" + (head[0] - appliedSeq) + " behind, " +
+                    Math.max(0, logFile.length() - offset) + " bytes unread)" +
+                    (lastApplyLagMillis < 0 ? "" : ", last change applied " + lastApplyLagMillis + " ms after publish") +
+                    ", last poll " + (lastPoll == null ? "never" : lastPoll.withNano(0));
+        }
+
+        synchronized String report() { return new Reports(store).generateFullStudentReport(); }
+
+        synchronized String summary(String lecturerUsername) { return new Reports(store).generateLecturerSubjectSummary(lecturerUsername); }
+
+        synchronized QueryResult query(Query q) { return queries.run(q); }
+    }
+
+    /** Headless reporting node: tails the log in the background and answers commands from stdin. */
+    static void runReplica(File logFile) throws IOException {
+        Replica replica = Replica.fromSnapshot(logFile);
+        replica.poll();
+        Thread poller = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(1000);
+                    replica.poll();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IOException e) {
+                    System.err.println("Replica poll failed: " + e);
+                }
+            }
+        }, "replica-poller");
+        poller.setDaemon(true);
+        poller.start();
+
+        System.out.println("Read-only replica of " + logFile + " | " + replica.lag());
+        System.out.println("Commands: report | summary <lecturer> | query <filters> | lag | quit");
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        for (String line; (line = prompt(in)) != null; ) {
+            line = line.trim();
+            int sp = line.indexOf(' ');
+            String cmd = sp < 0 ? line : line.substring(0, sp), rest = sp < 0 ? "" : line.substring(sp + 1).trim();
+            try {
+                switch (cmd) {
+                    case "" -> {}
+                    case "report" -> System.out.print(replica.report());
+                    case "summary" -> System.out.print(replica.summary(rest));
+                    case "query" -> System.out.print(replica.query(Query.parse(rest)).toText());
+                    case "lag" -> System.out.println(replica.lag());
+                    case "quit", "exit" -> { return; }
+                    default -> System.out.println("Unknown command: " + cmd);
+                }
+            } catch (IllegalArgumentException e) {
+                System.out.println("Query error: " + e.getMessage());
+            }
+        }
+    }
+
+    private static String prompt(BufferedReader in) throws IOException {
+        System.out.print("replica> ");
+        System.out.flush();
+        return in.readLine();
     }
 
     static final String DATA_FILE = "attendance-data.ser";
+    // e.g. -Dattendance.storage=indexed:attendance-db
+    static final String STORAGE_SPEC = System.getProperty("attendance.storage", "ser:" + DATA_FILE);
+    StorageBackend storage = StorageBackend.open(STORAGE_SPEC);
     DataStore store = new DataStore();
-
-    private DataStore loadStoreSafe() {
-        File f = new File(DATA_FILE);
+    // e.g. -Dattendance.changelog=attendance-changes.log; off when unset
+    static final String CHANGELOG_FILE = System.getProperty("attendance.changelog");
+    static final String DEFAULT_CHANGELOG = "attendance-changes.log";
+    ChangeLog changeLog;
+    List<StoreOp> unsaved = new ArrayList<>();
+    int published; // unsaved ops already appended to the change log
+    AtRiskDetector atRisk;
+    QueryEngine queries;
+
+    static DataStore readStore(File f) throws IOException, ClassNotFoundException {
         if (!f.exists()) return new DataStore();
-
         try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(f))) {
             Object obj = ois.readObject();
             if (obj instanceof DataStore ds) return ds;
             return new DataStore();
+        }
+    }
+
+    private DataStore loadStoreSafe() {
+        try {
+            return storage.load();
         } catch (Exception ex) {
             // If file is bad, don't crash the app
             JOptionPane.showMessageDialog(this,
-                    "Saved data file was corrupted and will be ignored.\nDelete attendance-data.ser if needed.\n\n" + ex,
+                    "Saved data (" + storage.describe() + ") was corrupted and will be ignored.\nDelete it if needed.\n\n" + ex,
                     "Data Load Warning",
                     JOptionPane.WARNING_MESSAGE);
             return new DataStore();
         }
     }
 
+    private void openChangeLog() {
+        if (CHANGELOG_FILE == null) return;
+        try {
+            changeLog = new ChangeLog(new File(CHANGELOG_FILE));
+            List<StoreOp> missed = changeLog.open(store);
+            if (!missed.isEmpty()) {
+                // published but never reached storage (crash between the two writes): roll forward
+                for (StoreOp op : missed) op.applyTo(store);
+                store.changeSeq = changeLog.lastSeq();
+                storage.save(store, missed);
+            }
+        } catch (Exception e) {
+            changeLog = null;
+            JOptionPane.showMessageDialog(this, "Change log disabled: " + e, "Change Log Warning", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        snapshotChangeLog();
+    }
+
+    // a failed snapshot only delays the next one; the log itself is already written and must not be re-sent
+    private void snapshotChangeLog() {
+        try {
+            changeLog.snapshotIfDue(store);
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "Change log snapshot failed, will retry on the next save: " + e,
+                    "Change Log Warning", JOptionPane.WARNING_MESSAGE);
+        }
+    }
+
     private void saveStoreSafe() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(DATA_FILE))) {
-            oos.writeObject(store);
+        try {
+            if (changeLog != null && published < unsaved.size()) {
+                changeLog.append(unsaved.subList(published, unsaved.size()), store);
+                published = unsaved.size();
+                snapshotChangeLog();
+            }
+            storage.save(store, unsaved);
+            unsaved.clear();
+            published = 0;
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Save failed: " + e, "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    // -------- Table Models --------
+    /**
+     * Attendance sheet for one subject/date. Rows are the store's Student objects and the Present column is a
+     * checkbox backed by a boolean array, so loading, toggling and "Mark All Present" copy no cell values.
+     * Save writes the array back with {@link DataStore#markSession} to the session that was loaded.
+     */
+    static final class SessionTableModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+        private static final String[] COLUMNS = {"Reg No", "Name", "Present"};
+        private final DataStore store;
+        private Student[] students = new Student[0];
+        private boolean[] present = new boolean[0];
+        private String subjectCode;
+        private LocalDate date;
+
+        SessionTableModel(DataStore store) { this.store = store; }
+
+        /** Shows every registered student with their saved status for that session, present if none yet. */
+        void load(String subjectCode, LocalDate d) {
+            this.subjectCode = subjectCode;
+            this.date = d;
+            students = store.studentsByReg.values().toArray(new Student[0]);
+            present = new boolean[students.length];
+            Map<String, Character> session = store.studentAttendance.getOrDefault(subjectCode, Map.of()).get(d);
+            for (int i = 0; i < students.length; i++) {
+                Character st = session == null ? null : session.get(students[i].regNo);
+                present[i] = st == null || st == 'P';
+            }
+            fireTableDataChanged();
+        }
+
+        void markAllPresent() {
+            if (present.length == 0) return;
+            Arrays.fill(present, true);
+            fireTableRowsUpdated(0, present.length - 1);
+        }
+
+        /** Date of the loaded session, or null before the first load. */
+        LocalDate date() { return date; }
+
+        void save() {
+            if (date == null) throw new IllegalStateException("No session loaded");
+            store.markSession(subjectCode, date, students, present);
+        }
+
+        @Override public int getRowCount() { return students.length; }
+        @Override public int getColumnCount() { return COLUMNS.length; }
+        @Override public String getColumnName(int col) { return COLUMNS[col]; }
+        @Override public Class<?> getColumnClass(int col) { return col == 2 ? Boolean.class : String.class; }
+        @Override public boolean isCellEditable(int row, int col) { return col == 2; }
+
+        @Override public Object getValueAt(int row, int col) {
+            return switch (col) {
+                case 0 -> students[row].regNo;
+                case 1 -> students[row].name;
+                default -> present[row]; // Boolean.TRUE/FALSE, no allocation
+            };
+        }
+
+        @Override public void setValueAt(Object value, int row, int col) {
+            if (col != 2) return;
+            present[row] = Boolean.TRUE.equals(value);
+            fireTableCellUpdated(row, col);
+        }
+    }
+
     // -------- UI State --------
     User currentUser;
 
@@ -144,6 +2056,12 @@ public class AttendanceSystemSwing extends JFrame {
 
         // load data AFTER frame exists (so we can show warning popups safely)
         store = loadStoreSafe();
+        openChangeLog();
+        store.addListener(StoreOp.recorder(unsaved::add));
+        atRisk = new AtRiskDetector(store);
+        store.addListener(atRisk);
+        queries = new QueryEngine(store);
+        store.addListener(queries);
 
         buildLoginPanel();
         buildAdminPanel(); // admin panel is safe at startup
@@ -157,23 +2075,37 @@ public class AttendanceSystemSwing extends JFrame {
     }
 
     // ---------- Helpers ----------
-    private static Subject subjectByCode(String code) {
-        for (Subject s : SUBJECTS) if (s.code.equals(code)) return s;
-        return null;
-    }
+    private static Subject subjectByCode(String code) { return TIMETABLE.subjectByCode(code); }
 
-    private Subject subjectForLecturer(String lecturerUsername) {
-        for (Subject s : SUBJECTS) if (s.lecturerUsername.equals(lecturerUsername)) return s;
-        return null;
-    }
+    private Subject subjectForLecturer(String lecturerUsername) { return TIMETABLE.subjectForLecturer(lecturerUsername); }
 
     private boolean isHoliday(LocalDate d) { return store.holidays.contains(d); }
 
     private String todayTimetableText() {
-        DayOfWeek d = LocalDate.now().getDayOfWeek();
-        if (!TIMETABLE.containsKey(d)) return "No class today (Weekend).";
-        Subject sub = subjectByCode(TIMETABLE.get(d));
-        return d + ": " + sub.code + " - " + sub.title + " | " + TIME_RANGE + " | Lecturer: " + sub.lecturerName;
+        LocalDate today = LocalDate.now();
+        List<TimetableSlot> slots = TIMETABLE.slotsOn(today);
+        if (slots.isEmpty()) {
+            DayOfWeek d = today.getDayOfWeek();
+            return (d == DayOfWeek.SATURDAY || d == DayOfWeek.SUNDAY) ? "No class today (Weekend)." : "No class today.";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (TimetableSlot t : slots) {
+            if (sb.length() > 0) sb.append("\n       ");
+            Subject sub = t.subject;
+            sb.append(t.day).append(": ").append(sub.code).append(" - ").append(sub.title)
+              .append(" | ").append(t.start).append(" to ").append(t.end)
+              .append(" | Lecturer: ").append(sub.lecturerName);
+        }
+        if (TIMETABLE.termStart != null) sb.append(" | Week ").append(TIMETABLE.weekOfTerm(today)).append(" of term");
+        return sb.toString();
+    }
+
+    // attendance on a date the timetable has no slot for is allowed, but only after confirming
+    private boolean confirmTimetabled(Subject sub, LocalDate d) {
+        if (TIMETABLE.hasSession(sub.code, d)) return true;
+        return JOptionPane.showConfirmDialog(this,
+                sub.code + " is not on the timetable for " + d + " (" + d.getDayOfWeek() + ").\nSave anyway?",
+                "Not Timetabled", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION;
     }
 
     private LocalDate parseDateOrNull(String s) {
@@ -243,7 +2175,7 @@ public class AttendanceSystemSwing extends JFrame {
         JPanel top = new JPanel(new BorderLayout());
         top.setBorder(new EmptyBorder(12,12,12,12));
         top.add(title, BorderLayout.NORTH);
-        top.add(new JLabel("Timetable: Mon 1022 | Tue 1012 | Wed 1032 | Thu 1042 | Fri 1062 (8AM–3PM)"), BorderLayout.SOUTH);
+        top.add(new JLabel("Timetable: " + TIMETABLE.summaryLine()), BorderLayout.SOUTH);
 
         JPanel btns = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         btns.add(resetBtn);
@@ -273,6 +2205,7 @@ public class AttendanceSystemSwing extends JFrame {
         tabs.addTab("Holidays", adminHolidaysTab());
         tabs.addTab("Medical", adminMedicalTab());
         tabs.addTab("Reports", adminReportsTab());
+        tabs.addTab("Query", adminQueryTab());
 
         adminPanel.add(top, BorderLayout.NORTH);
         adminPanel.add(tabs, BorderLayout.CENTER);
@@ -293,8 +2226,7 @@ public class AttendanceSystemSwing extends JFrame {
             String r = reg.getText().trim();
             String n = name.getText().trim();
             if (r.isEmpty() || n.isEmpty()) { JOptionPane.showMessageDialog(this, "Enter Reg No and Name."); return; }
-            if (store.studentsByReg.containsKey(r)) { JOptionPane.showMessageDialog(this, "Reg No already exists."); return; }
-            store.studentsByReg.put(r, new Student(r, n));
+            if (!store.addStudent(new Student(r, n))) { JOptionPane.showMessageDialog(this, "Reg No already exists."); return; }
             refreshStudentsModel(model);
             reg.setText(""); name.setText("");
         });
@@ -303,11 +2235,7 @@ public class AttendanceSystemSwing extends JFrame {
             int row = table.getSelectedRow();
             if (row < 0) return;
             String r = (String) model.getValueAt(row, 0);
-            store.studentsByReg.remove(r);
-            for (var subj : store.studentAttendance.values()) {
-                for (var dateMap : subj.values()) dateMap.remove(r);
-            }
-            store.medicals.removeIf(m -> m.regNo.equals(r));
+            store.removeStudent(r);
             refreshStudentsModel(model);
         });
 
@@ -342,7 +2270,8 @@ public class AttendanceSystemSwing extends JFrame {
         add.addActionListener(e -> {
             LocalDate d = parseDateOrNull(date.getText());
             if (d == null) { JOptionPane.showMessageDialog(this, "Invalid date. Use YYYY-MM-DD"); return; }
-            store.holidays.add(d);
+            store.addHoliday(d);
+            atRisk.flush();
             refreshHolidaysModel(model);
             date.setText("");
         });
@@ -351,7 +2280,8 @@ public class AttendanceSystemSwing extends JFrame {
             int row = table.getSelectedRow();
             if (row < 0) return;
             LocalDate d = LocalDate.parse((String) model.getValueAt(row, 0));
-            store.holidays.remove(d);
+            store.removeHoliday(d);
+            atRisk.flush();
             refreshHolidaysModel(model);
         });
 
@@ -406,15 +2336,16 @@ public class AttendanceSystemSwing extends JFrame {
             if (eDate.isBefore(sDate)) { JOptionPane.showMessageDialog(this, "End date cannot be before start date."); return; }
 
             Medical m = new Medical(regNo, subj, sDate, eDate, note.getText().trim());
-            store.medicals.add(m);
+            store.addMedical(m);
 
             // notify lecturers
             if ("ALL".equals(subj)) {
-                for (Subject sub : SUBJECTS) store.notifications.add(new Notification(sub.lecturerUsername, buildMedicalMessage(regNo, m)));
+                for (Subject sub : SUBJECTS) store.addNotification(new Notification(sub.lecturerUsername, buildMedicalMessage(regNo, m)));
             } else {
                 Subject sub = subjectByCode(subj);
-                if (sub != null) store.notifications.add(new Notification(sub.lecturerUsername, buildMedicalMessage(regNo, m)));
+                if (sub != null) store.addNotification(new Notification(sub.lecturerUsername, buildMedicalMessage(regNo, m)));
             }
+            atRisk.flush();
 
             refreshMedicalsModel(model);
             start.setText(""); end.setText(""); note.setText("");
@@ -429,12 +2360,13 @@ public class AttendanceSystemSwing extends JFrame {
             String s = (String) model.getValueAt(row, 2);
             String en = (String) model.getValueAt(row, 3);
 
-            store.medicals.removeIf(m ->
+            store.removeMedicals(m ->
                     m.regNo.equals(regNo) &&
                     m.subjectCodeOrAll.equals(subj) &&
                     m.start.toString().equals(s) &&
                     m.end.toString().equals(en)
             );
+            atRisk.flush();
             refreshMedicalsModel(model);
         });
 
@@ -467,7 +2399,7 @@ public class AttendanceSystemSwing extends JFrame {
         return "Medical submitted for " + regNo + " - " + name +
                 " | " + m.start + " to " + m.end +
                 " | Subject: " + m.subjectCodeOrAll +
-                " | Adds +5% (max 100%).";
+                " | Adds +" + MEDICAL_BONUS_PERCENT + "% (max 100%).";
     }
 
     private void refreshMedicalsModel(DefaultTableModel model) {
@@ -483,7 +2415,7 @@ public class AttendanceSystemSwing extends JFrame {
         area.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
 
         JButton refresh = new JButton("Generate Report");
-        refresh.addActionListener(e -> area.setText(generateFullStudentReport()));
+        refresh.addActionListener(e -> area.setText(new Reports(store).generateFullStudentReport()));
 
         JButton save = new JButton("Save Data");
         save.addActionListener(e -> { saveStoreSafe(); JOptionPane.showMessageDialog(this, "Saved."); });
@@ -495,7 +2427,48 @@ public class AttendanceSystemSwing extends JFrame {
         p.add(top, BorderLayout.NORTH);
         p.add(new JScrollPane(area), BorderLayout.CENTER);
 
-        area.setText(generateFullStudentReport());
+        area.setText(new Reports(store).generateFullStudentReport());
+        return p;
+    }
+
+    private JPanel adminQueryTab() {
+        DefaultTableModel model = new DefaultTableModel(0, 0) {
+            @Override public boolean isCellEditable(int row, int column) { return false; }
+        };
+        JTable table = new JTable(model);
+
+        JTextField queryField = new JTextField("students subject:1032 streak:3", 40);
+        JLabel status = new JLabel(" ");
+        JButton run = new JButton("Run Query");
+
+        run.addActionListener(e -> {
+            try {
+                QueryResult r = queries.run(Query.parse(queryField.getText()));
+                model.setDataVector(r.rows.toArray(new Object[0][]), r.columns);
+                status.setText(r.timing());
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Query Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        queryField.addActionListener(e -> run.doClick());
+
+        JTextArea help = new JTextArea(
+                "Source: students | lecturers | medicals   Filters: subject:1032  student:REG  lecturer:lect1012  status:A|P\n" +
+                "date:2026-01-01..2026-01-31  month:this|2026-03  week:6  medical:yes|no  streak:3 (consecutive absences)");
+        help.setEditable(false);
+        help.setBackground(new Color(245,245,245));
+
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        top.add(new JLabel("Query:")); top.add(queryField); top.add(run);
+
+        JPanel north = new JPanel(new BorderLayout());
+        north.add(top, BorderLayout.NORTH);
+        north.add(help, BorderLayout.SOUTH);
+
+        JPanel p = new JPanel(new BorderLayout());
+        p.add(north, BorderLayout.NORTH);
+        p.add(new JScrollPane(table), BorderLayout.CENTER);
+        p.add(status, BorderLayout.SOUTH);
         return p;
     }
 
@@ -532,13 +2505,16 @@ public class AttendanceSystemSwing extends JFrame {
         area.setBackground(new Color(245,245,245));
         area.setBorder(new EmptyBorder(10,10,10,10));
         Subject me = subjectForLecturer(currentUser.username);
-        area.setText("Today: " + todayTimetableText() + "\n\nYou are: " +
+        TimetableSlot now = TIMETABLE.slotAt(LocalDateTime.now());
+        area.setText("Today: " + todayTimetableText() +
+                "\nNow: " + (now == null ? "No session running." : now.subject.code + " - " + now.subject.title + " (" + now.start + " to " + now.end + ")") +
+                "\n\nYou are: " +
                 (me == null ? "Unknown" : me.lecturerName + " | Subject: " + me.code));
         return new JPanel(new BorderLayout()) {{ add(area, BorderLayout.CENTER); }};
     }
 
     private JPanel lecturerAttendanceTab() {
-        DefaultTableModel model = new DefaultTableModel(new Object[]{"Reg No", "Name", "Status (P/A)"}, 0);
+        SessionTableModel model = new SessionTableModel(store);
         JTable table = new JTable(model);
 
         JTextField dateField = new JTextField(10);
@@ -550,31 +2526,32 @@ public class AttendanceSystemSwing extends JFrame {
         JButton saveData = new JButton("Save Data");
 
         load.addActionListener(e -> {
-            model.setRowCount(0);
-            for (Student s : store.studentsByReg.values()) model.addRow(new Object[]{s.regNo, s.name, "P"});
-        });
+            Subject sub = subjectForLecturer(currentUser.username);
+            if (sub == null) { JOptionPane.showMessageDialog(this, "Subject not assigned."); return; }
 
-        markAllP.addActionListener(e -> {
-            for (int i=0;i<model.getRowCount();i++) model.setValueAt("P", i, 2);
+            LocalDate d = parseDateOrNull(dateField.getText());
+            if (d == null) { JOptionPane.showMessageDialog(this, "Invalid date (YYYY-MM-DD)."); return; }
+            model.load(sub.code, d);
         });
 
+        markAllP.addActionListener(e -> model.markAllPresent());
+
         saveAttendance.addActionListener(e -> {
             Subject sub = subjectForLecturer(currentUser.username);
             if (sub == null) { JOptionPane.showMessageDialog(this, "Subject not assigned."); return; }
 
-            LocalDate d = parseDateOrNull(dateField.getText());
-            if (d == null) { JOptionPane.showMessageDialog(this, "Invalid date (YYYY-MM-DD)."); return; }
+            LocalDate d = model.date();
+            if (d == null) { JOptionPane.showMessageDialog(this, "Load students first."); return; }
+            if (!d.equals(parseDateOrNull(dateField.getText()))) {
+                JOptionPane.showMessageDialog(this, "The sheet shows " + d + ". Press Load Students for the new date first.");
+                return;
+            }
             if (isHoliday(d)) { JOptionPane.showMessageDialog(this, "This date is a HOLIDAY. No attendance allowed."); return; }
+            if (!confirmTimetabled(sub, d)) return;
 
-            store.studentAttendance.putIfAbsent(sub.code, new HashMap<>());
-            store.studentAttendance.get(sub.code).putIfAbsent(d, new HashMap<>());
-            Map<String, Character> map = store.studentAttendance.get(sub.code).get(d);
-
-            for (int i=0;i<model.getRowCount();i++) {
-                String reg = (String) model.getValueAt(i, 0);
-                String status = String.valueOf(model.getValueAt(i, 2)).trim().toUpperCase();
-                map.put(reg, status.startsWith("A") ? 'A' : 'P');
-            }
+            if (table.isEditing()) table.getCellEditor().stopCellEditing();
+            model.save();
+            atRisk.flush();
 
             JOptionPane.showMessageDialog(this, "Student attendance saved for " + sub.code + " on " + d);
         });
@@ -605,10 +2582,9 @@ public class AttendanceSystemSwing extends JFrame {
             LocalDate d = parseDateOrNull(dateField.getText());
             if (d == null) { JOptionPane.showMessageDialog(this, "Invalid date (YYYY-MM-DD)."); return; }
             if (isHoliday(d)) { JOptionPane.showMessageDialog(this, "This date is a HOLIDAY. No attendance allowed."); return; }
+            if (!confirmTimetabled(sub, d)) return;
 
-            store.lecturerAttendance.putIfAbsent(sub.code, new HashMap<>());
-            store.lecturerAttendance.get(sub.code).putIfAbsent(d, new HashMap<>());
-            store.lecturerAttendance.get(sub.code).get(d).put(currentUser.username, ((String)status.getSelectedItem()).charAt(0));
+            store.markLecturer(sub.code, d, currentUser.username, ((String)status.getSelectedItem()).charAt(0));
 
             JOptionPane.showMessageDialog(this, "Lecturer attendance saved.");
         });
@@ -633,7 +2609,7 @@ public class AttendanceSystemSwing extends JFrame {
 
         refresh.addActionListener(e -> refreshNotificationsModel(model));
         markAllRead.addActionListener(e -> {
-            for (Notification n : store.notifications) if (n.lecturerUsername.equals(currentUser.username)) n.read = true;
+            store.markNotificationsRead(currentUser.username);
             refreshNotificationsModel(model);
         });
         saveData.addActionListener(e -> { saveStoreSafe(); JOptionPane.showMessageDialog(this, "Saved."); });
@@ -662,7 +2638,7 @@ public class AttendanceSystemSwing extends JFrame {
         area.setEditable(false);
         area.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
         JButton refresh = new JButton("Generate Summary");
-        refresh.addActionListener(e -> area.setText(generateLecturerSubjectSummary()));
+        refresh.addActionListener(e -> area.setText(new Reports(store).generateLecturerSubjectSummary(currentUser.username)));
         JButton saveData = new JButton("Save Data");
         saveData.addActionListener(e -> { saveStoreSafe(); JOptionPane.showMessageDialog(this, "Saved."); });
 
@@ -677,99 +2653,199 @@ public class AttendanceSystemSwing extends JFrame {
     }
 
     // ---------- Reports ----------
-    private int totalSessionsForSubject(String subjectCode) {
-        Map<LocalDate, Map<String, Character>> dateMap = store.studentAttendance.getOrDefault(subjectCode, Map.of());
-        int count = 0;
-        for (LocalDate d : dateMap.keySet()) if (!isHoliday(d)) count++;
-        return count;
-    }
+    /** Report text over a DataStore; shared by the UI and the read-only replica. */
+    static final class Reports {
+        private final DataStore store;
 
-    private int presentCount(String subjectCode, String regNo) {
-        Map<LocalDate, Map<String, Character>> dateMap = store.studentAttendance.getOrDefault(subjectCode, Map.of());
-        int p = 0;
-        for (var entry : dateMap.entrySet()) {
-            if (isHoliday(entry.getKey())) continue;
-            Character st = entry.getValue().get(regNo);
-            if (st != null && st == 'P') p++;
-        }
-        return p;
-    }
+        Reports(DataStore store) { this.store = store; }
 
-    private boolean studentHasMedicalForSubject(String regNo, String subjectCode) {
-        for (Medical m : store.medicals) {
-            if (!m.regNo.equals(regNo)) continue;
-            if ("ALL".equals(m.subjectCodeOrAll) || subjectCode.equals(m.subjectCodeOrAll)) return true;
+        private boolean isHoliday(LocalDate d) { return store.holidays.contains(d); }
+
+        private int totalSessionsForSubject(String subjectCode) {
+            Map<LocalDate, Map<String, Character>> dateMap = store.studentAttendance.getOrDefault(subjectCode, Map.of());
+            int count = 0;
+            for (LocalDate d : dateMap.keySet()) if (!isHoliday(d)) count++;
+            return count;
         }
-        return false;
-    }
 
-    private double attendancePercentWithMedical(String subjectCode, String regNo) {
-        int total = totalSessionsForSubject(subjectCode);
-        if (total == 0) return 0.0;
-        double percent = presentCount(subjectCode, regNo) * 100.0 / total;
-        if (studentHasMedicalForSubject(regNo, subjectCode)) percent = Math.min(100.0, percent + 5.0);
-        return percent;
-    }
+        private int presentCount(String subjectCode, String regNo) {
+            Map<LocalDate, Map<String, Character>> dateMap = store.studentAttendance.getOrDefault(subjectCode, Map.of());
+            int p = 0;
+            for (var entry : dateMap.entrySet()) {
+                if (isHoliday(entry.getKey())) continue;
+                Character st = entry.getValue().get(regNo);
+                if (st != null && st == 'P') p++;
+            }
+            return p;
+        }
 
-    private String generateFullStudentReport() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("FULL STUDENT REPORT (Medical +5%, Eligibility >=80%)\n");
-        sb.append("------------------------------------------------------\n\n");
+        private boolean studentHasMedicalForSubject(String regNo, String subjectCode) {
+            for (Medical m : store.medicals) {
+                if (!m.regNo.equals(regNo)) continue;
+                if ("ALL".equals(m.subjectCodeOrAll) || subjectCode.equals(m.subjectCodeOrAll)) return true;
+            }
+            return false;
+        }
 
-        if (store.studentsByReg.isEmpty()) {
-            sb.append("No students found. Admin -> Students -> Add Student.\n");
-            return sb.toString();
+        private double attendancePercentWithMedical(String subjectCode, String regNo) {
+            int total = totalSessionsForSubject(subjectCode);
+            if (total == 0) return 0.0;
+            double percent = presentCount(subjectCode, regNo) * 100.0 / total;
+            if (studentHasMedicalForSubject(regNo, subjectCode)) percent = Math.min(100.0, percent + MEDICAL_BONUS_PERCENT);
+            return percent;
         }
 
-        for (Student st : store.studentsByReg.values()) {
-            sb.append("Student: ").append(st.regNo).append(" - ").append(st.name).append("\n");
-            sb.append(String.format("%-10s %-30s %8s %8s %12s %12s %12s\n",
-                    "Subject", "Title", "Present", "Total", "%", "%+Med", "Eligible"));
+        String generateFullStudentReport() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("FULL STUDENT REPORT (Medical +" + MEDICAL_BONUS_PERCENT + "%, Eligibility >=" + ELIGIBILITY_PERCENT + "%)\n");
+            sb.append("------------------------------------------------------\n\n");
 
-            for (Subject sub : SUBJECTS) {
-                int total = totalSessionsForSubject(sub.code);
-                int present = presentCount(sub.code, st.regNo);
-                double raw = (total == 0) ? 0.0 : present * 100.0 / total;
-                double withMed = attendancePercentWithMedical(sub.code, st.regNo);
-                boolean eligible = withMed >= 80.0;
+            if (store.studentsByReg.isEmpty()) {
+                sb.append("No students found. Admin -> Students -> Add Student.\n");
+                return sb.toString();
+            }
 
-                sb.append(String.format("%-10s %-30s %8d %8d %11.2f%% %11.2f%% %12s\n",
-                        sub.code, sub.title, present, total, raw, withMed, eligible ? "YES" : "NO"));
+            for (Student st : store.studentsByReg.values()) {
+                sb.append("Student: ").append(st.regNo).append(" - ").append(st.name).append("\n");
+                sb.append(String.format("%-10s %-30s %8s %8s %12s %12s %12s\n",
+                        "Subject", "Title", "Present", "Total", "%", "%+Med", "Eligible"));
+
+                for (Subject sub : SUBJECTS) {
+                    int total = totalSessionsForSubject(sub.code);
+                    int present = presentCount(sub.code, st.regNo);
+                    double raw = (total == 0) ? 0.0 : present * 100.0 / total;
+                    double withMed = attendancePercentWithMedical(sub.code, st.regNo);
+                    boolean eligible = eligible(present, total, studentHasMedicalForSubject(st.regNo, sub.code));
+
+                    sb.append(String.format("%-10s %-30s %8d %8d %11.2f%% %11.2f%% %12s\n",
+                            sub.code, sub.title, present, total, raw, withMed, eligible ? "YES" : "NO"));
+                }
+                sb.append("\n");
             }
-            sb.append("\n");
+            return sb.toString();
         }
-        return sb.toString();
-    }
 
-    private String generateLecturerSubjectSummary() {
-        Subject sub = subjectForLecturer(currentUser.username);
-        if (sub == null) return "No subject assigned.\n";
+        String generateLecturerSubjectSummary(String lecturerUsername) {
+            Subject sub = TIMETABLE.subjectForLecturer(lecturerUsername);
+            if (sub == null) return "No subject assigned.\n";
+            return lecturerSummary(sub, totalSessionsForSubject(sub.code), store.studentsByReg.values(),
+                    regNo -> presentCount(sub.code, regNo), regNo -> studentHasMedicalForSubject(regNo, sub.code));
+        }
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("LECTURER SUMMARY for ").append(sub.code).append(" - ").append(sub.title).append("\n");
-        sb.append("Lecturer: ").append(sub.lecturerName).append("\n");
-        sb.append("Medical adds +5% (max 100%). Eligible if >=80%.\n\n");
+        /**
+         * Same report read straight from storage: only the lecturer's subject is scanned, so the indexed backend
+         * reads that subject's blocks instead of loading every mark.
+         */
+        static String lecturerSummary(StorageBackend backend, String lecturerUsername) throws IOException {
+            Subject sub = TIMETABLE.subjectForLecturer(lecturerUsername);
+            if (sub == null) return "No subject assigned.\n";
+
+            Set<LocalDate> holidays = backend.holidays();
+            int total = 0;
+            for (LocalDate d : backend.sessions(MarkKind.STUDENT, sub.code)) if (!holidays.contains(d)) total++;
+            Map<String, Integer> present = new HashMap<>();
+            backend.scanMarks(MarkKind.STUDENT, sub.code, null, null, (code, d, regNo, status) -> {
+                if (status == 'P' && !holidays.contains(d)) present.merge(regNo, 1, Integer::sum);
+            });
+            Set<String> withMedical = new HashSet<>();
+            for (Student st : backend.students()) {
+                for (Medical m : backend.medicalsFor(st.regNo)) {
+                    if ("ALL".equals(m.subjectCodeOrAll) || sub.code.equals(m.subjectCodeOrAll)) withMedical.add(st.regNo);
+                }
+            }
+            return lecturerSummary(sub, total, backend.students(), regNo -> present.getOrDefault(regNo, 0), withMedical::contains);
+        }
+
+        private static String lecturerSummary(Subject sub, int total, Collection<Student> students,
+                                              ToIntFunction<String> presentCount, Predicate<String> hasMedical) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("LECTURER SUMMARY for ").append(sub.code).append(" - ").append(sub.title).append("\n");
+            sb.append("Lecturer: ").append(sub.lecturerName).append("\n");
+            sb.append("Medical adds +" + MEDICAL_BONUS_PERCENT + "% (max 100%). Eligible if >=" + ELIGIBILITY_PERCENT + "%.\n\n");
 
-        int total = totalSessionsForSubject(sub.code);
-        sb.append("Total Sessions (excluding holidays): ").append(total).append("\n\n");
+            sb.append("Total Sessions (excluding holidays): ").append(total).append("\n\n");
 
-        sb.append(String.format("%-12s %-25s %8s %8s %12s %12s %10s\n",
-                "RegNo", "Name", "Present", "Total", "%", "%+Med", "Eligible"));
+            sb.append(String.format("%-12s %-25s %8s %8s %12s %12s %10s\n",
+                    "RegNo", "Name", "Present", "Total", "%", "%+Med", "Eligible"));
 
-        for (Student st : store.studentsByReg.values()) {
-            int present = presentCount(sub.code, st.regNo);
-            double raw = (total == 0) ? 0.0 : present * 100.0 / total;
-            double withMed = attendancePercentWithMedical(sub.code, st.regNo);
-            boolean eligible = withMed >= 80.0;
+            for (Student st : students) {
+                int present = presentCount.applyAsInt(st.regNo);
+                boolean medical = hasMedical.test(st.regNo);
+                double raw = (total == 0) ? 0.0 : present * 100.0 / total;
+                double withMed = (total == 0) ? 0.0 : medical ? Math.min(100.0, raw + MEDICAL_BONUS_PERCENT) : raw;
+                boolean eligible = eligible(present, total, medical);
 
-            sb.append(String.format("%-12s %-25s %8d %8d %11.2f%% %11.2f%% %10s\n",
-                    st.regNo, st.name, present, total, raw, withMed, eligible ? "YES" : "NO"));
+                sb.append(String.format("%-12s %-25s %8d %8d %11.2f%% %11.2f%% %10s\n",
+                        st.regNo, st.name, present, total, raw, withMed, eligible ? "YES" : "NO"));
+            }
+            return sb.toString();
         }
-        return sb.toString();
     }
 
     // ---------- MAIN (with crash popup) ----------
     public static void main(String[] args) {
+        // headless: java AttendanceSystemSwing --query "students subject:1032 streak:3"
+        if (args.length >= 2 && args[0].equals("--query")) {
+            try {
+                DataStore ds = StorageBackend.open(STORAGE_SPEC).load();
+                System.out.print(new QueryEngine(ds).run(Query.parse(String.join(" ", Arrays.copyOfRange(args, 1, args.length)))).toText());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Query error: " + e.getMessage());
+                System.exit(2);
+            } catch (Exception e) {
+                System.err.println("Could not read " + STORAGE_SPEC + ": " + e);
+                System.exit(1);
+            }
+            return;
+        }
+
+        // headless reporting node: java AttendanceSystemSwing --replica [attendance-changes.log]
+        if (args.length >= 1 && args[0].equals("--replica")) {
+            try {
+                runReplica(new File(args.length > 1 ? args[1] : DEFAULT_CHANGELOG));
+            } catch (IOException e) {
+                System.err.println("Replica failed: " + e);
+                System.exit(1);
+            }
+            return;
+        }
+
+        // headless: java AttendanceSystemSwing --summary lect1032 (reads only that subject's marks)
+        if (args.length == 2 && args[0].equals("--summary")) {
+            try {
+                System.out.print(Reports.lecturerSummary(StorageBackend.open(STORAGE_SPEC), args[1]));
+            } catch (Exception e) {
+                System.err.println("Could not read " + STORAGE_SPEC + ": " + e);
+                System.exit(1);
+            }
+            return;
+        }
+
+        // headless, with the application stopped: java AttendanceSystemSwing --compact indexed:attendance-db
+        if (args.length == 2 && args[0].equals("--compact")) {
+            try {
+                if (!(StorageBackend.open(args[1]) instanceof IndexedFileBackend indexed)) {
+                    throw new IllegalArgumentException("only indexed:<dir> storage grows; ser: is rewritten on every save");
+                }
+                System.out.println(indexed.compact());
+            } catch (Exception e) {
+                System.err.println("Compaction failed: " + e);
+                System.exit(1);
+            }
+            return;
+        }
+
+        // headless: java AttendanceSystemSwing --migrate ser:attendance-data.ser indexed:attendance-db
+        if (args.length == 3 && args[0].equals("--migrate")) {
+            try {
+                System.out.println(migrate(StorageBackend.open(args[1]), StorageBackend.open(args[2])));
+            } catch (Exception e) {
+                System.err.println("Migration failed: " + e);
+                System.exit(1);
+            }
+            return;
+        }
+
         Thread.setDefaultUncaughtExceptionHandler((t, e) -> {
             e.printStackTrace();
             JOptionPane.showMessageDialog(null, e.toString(), "App Crash", JOptionPane.ERROR_MESSAGE);